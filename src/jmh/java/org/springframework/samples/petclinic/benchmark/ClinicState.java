@@ -0,0 +1,113 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.benchmark;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.PetClinicApplication;
+
+/**
+ * The running application, on the embedded HSQLDB, seeded with {@link #owners} synthetic owners on top of the sample
+ * data. Each owner has two pets with three visits each; last names cycle through {@link #LAST_NAMES} so that prefix
+ * searches match a predictable share of the owners.
+ */
+@State(Scope.Benchmark)
+public class ClinicState {
+
+    static final int FIRST_ID = 1000;
+
+    static final String[] LAST_NAMES = {"Anderson", "Baker", "Black", "Carter", "Coleman", "Davis", "Davidson",
+        "Escobito", "Franklin", "Garcia", "Harris", "Jackson", "Johnson", "Miller", "Moore", "Schroeder", "Schultz",
+        "Smith", "Taylor", "Wilson"};
+
+    @Param("1000")
+    public int owners;
+
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void start() {
+        this.context = new SpringApplicationBuilder(PetClinicApplication.class)
+            .properties("server.port=0", "spring.main.banner-mode=off", "logging.level.root=WARN")
+            .run();
+        seed(this.context.getBean(JdbcTemplate.class), this.owners);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        this.context.close();
+    }
+
+    public <T> T bean(Class<T> type) {
+        return this.context.getBean(type);
+    }
+
+    public ConfigurableApplicationContext context() {
+        return this.context;
+    }
+
+    /**
+     * @return the id of the {@code n}-th synthetic owner, wrapping around
+     */
+    public int ownerId(int n) {
+        return FIRST_ID + Math.floorMod(n, this.owners);
+    }
+
+    static void seed(JdbcTemplate jdbc, int owners) {
+        List<Object[]> ownerRows = new ArrayList<>();
+        List<Object[]> petRows = new ArrayList<>();
+        List<Object[]> visitRows = new ArrayList<>();
+        int petId = FIRST_ID;
+        int visitId = FIRST_ID;
+        for (int i = 0; i < owners; i++) {
+            int ownerId = FIRST_ID + i;
+            ownerRows.add(new Object[]{ownerId, "First" + i, LAST_NAMES[i % LAST_NAMES.length],
+                i + " Main St.", "Madison", String.format("608%07d", i)});
+            for (int p = 0; p < 2; p++) {
+                petRows.add(new Object[]{petId, "Pet" + i + "-" + p, Date.valueOf("2015-01-01"),
+                    1 + (i + p) % 6, ownerId});
+                for (int v = 0; v < 3; v++) {
+                    visitRows.add(new Object[]{visitId++, petId, Date.valueOf("2018-01-0" + (v + 1)),
+                        "visit " + v});
+                }
+                petId++;
+            }
+            if (ownerRows.size() == 1000 || i == owners - 1) {
+                jdbc.batchUpdate("INSERT INTO owners (id, first_name, last_name, address, city, telephone) "
+                    + "VALUES (?, ?, ?, ?, ?, ?)", ownerRows);
+                jdbc.batchUpdate("INSERT INTO pets (id, name, birth_date, type_id, owner_id) "
+                    + "VALUES (?, ?, ?, ?, ?)", petRows);
+                jdbc.batchUpdate("INSERT INTO visits (id, pet_id, visit_date, description) VALUES (?, ?, ?, ?)",
+                    visitRows);
+                ownerRows.clear();
+                petRows.clear();
+                visitRows.clear();
+            }
+        }
+    }
+
+}
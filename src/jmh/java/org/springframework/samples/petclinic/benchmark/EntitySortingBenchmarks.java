@@ -0,0 +1,112 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.benchmark;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.samples.petclinic.owner.Pet;
+import org.springframework.samples.petclinic.vet.Specialty;
+import org.springframework.samples.petclinic.vet.Vet;
+import org.springframework.samples.petclinic.visit.Visit;
+
+/**
+ * The sorted views the templates read from the entities, outside of any persistence context. Run with
+ * {@code -prof gc} to see the allocation rate per call: {@code gc.alloc.rate.norm} is the number of bytes allocated
+ * per invocation, which drops to zero once the views are computed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EntitySortingBenchmarks {
+
+    @Param({"3", "30"})
+    public int size;
+
+    private Owner owner;
+
+    private Pet pet;
+
+    private Vet vet;
+
+    @Setup
+    public void setup() {
+        this.owner = new Owner();
+        for (int i = 0; i < this.size; i++) {
+            Pet pet = new Pet();
+            pet.setName("Pet" + ((i * 7919) % this.size));
+            this.owner.addPet(pet);
+        }
+        this.pet = new Pet();
+        for (int i = 0; i < this.size; i++) {
+            Visit visit = new Visit();
+            visit.setDate(LocalDate.of(2000, 1, 1).plusDays((i * 7919) % this.size));
+            this.pet.addVisit(visit);
+            this.owner.getPets().get(i).addVisit(visit);
+        }
+        this.vet = new Vet();
+        for (int i = 0; i < Math.min(this.size, 8); i++) {
+            Specialty specialty = new Specialty();
+            specialty.setName("specialty" + ((i * 7919) % this.size));
+            this.vet.addSpecialty(specialty);
+        }
+    }
+
+    @Benchmark
+    public List<Pet> ownerGetPets() {
+        return this.owner.getPets();
+    }
+
+    @Benchmark
+    public List<Visit> petGetVisits() {
+        return this.pet.getVisits();
+    }
+
+    @Benchmark
+    public List<Specialty> vetGetSpecialties() {
+        return this.vet.getSpecialties();
+    }
+
+    /**
+     * The getter calls of one owner details render: the pets of the owner, then the visits of each pet.
+     */
+    @Benchmark
+    public void ownerDetailsRender(Blackhole blackhole) {
+        for (Pet pet : this.owner.getPets()) {
+            for (Visit visit : pet.getVisits()) {
+                blackhole.consume(visit.getDate());
+            }
+        }
+    }
+
+}
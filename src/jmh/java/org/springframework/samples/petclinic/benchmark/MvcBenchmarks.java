@@ -0,0 +1,78 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Full MVC dispatch of the owner and vet pages, including view rendering, through {@link MockMvc}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MvcBenchmarks {
+
+    private MockMvc mockMvc;
+
+    private int next;
+
+    @Setup
+    public void setup(ClinicState clinic) {
+        this.mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) clinic.context()).build();
+    }
+
+    @Benchmark
+    public MvcResult ownerDetails(ClinicState clinic) throws Exception {
+        return this.mockMvc.perform(get("/owners/{ownerId}", clinic.ownerId(this.next++))).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult ownerSearch() throws Exception {
+        return this.mockMvc.perform(get("/owners").param("lastName", "Da")).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult vetListHtml() throws Exception {
+        return this.mockMvc.perform(get("/vets.html")).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult vetListJson() throws Exception {
+        return this.mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON)).andReturn();
+    }
+
+}
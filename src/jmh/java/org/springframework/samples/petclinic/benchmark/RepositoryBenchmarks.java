@@ -0,0 +1,106 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.benchmark;
+
+import java.text.ParseException;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.owner.PetType;
+import org.springframework.samples.petclinic.owner.PetTypeFormatter;
+import org.springframework.samples.petclinic.vet.Vet;
+import org.springframework.samples.petclinic.vet.VetCatalog;
+import org.springframework.samples.petclinic.vet.VetRepository;
+import org.springframework.samples.petclinic.vet.VetSnapshot;
+
+/**
+ * Repository and formatter hot paths against the seeded embedded database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RepositoryBenchmarks {
+
+    @Param({"Da", "Schr"})
+    public String lastNamePrefix;
+
+    private OwnerRepository owners;
+
+    private VetRepository vets;
+
+    private VetCatalog vetCatalog;
+
+    private PetTypeFormatter petTypeFormatter;
+
+    private int next;
+
+    @Setup
+    public void setup(ClinicState clinic) {
+        this.owners = clinic.bean(OwnerRepository.class);
+        this.vets = clinic.bean(VetRepository.class);
+        this.vetCatalog = clinic.bean(VetCatalog.class);
+        this.petTypeFormatter = clinic.bean(PetTypeFormatter.class);
+    }
+
+    @Benchmark
+    public Collection<Owner> ownerFindByLastName() {
+        return this.owners.findByLastName(this.lastNamePrefix);
+    }
+
+    @Benchmark
+    public Owner ownerFindById(ClinicState clinic) {
+        return this.owners.findById(clinic.ownerId(this.next++));
+    }
+
+    @Benchmark
+    public VetSnapshot vetSnapshotCurrent() {
+        return this.vetCatalog.current();
+    }
+
+    @Benchmark
+    public VetSnapshot vetSnapshotRebuild() {
+        VetCatalog.invalidate();
+        return this.vetCatalog.current();
+    }
+
+    @Benchmark
+    public Collection<Vet> vetFindAll() {
+        return this.vets.findAll();
+    }
+
+    @Benchmark
+    public PetType petTypeParse() throws ParseException {
+        return this.petTypeFormatter.parse("hamster", Locale.ENGLISH);
+    }
+
+}
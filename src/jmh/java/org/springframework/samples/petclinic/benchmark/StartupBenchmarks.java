@@ -0,0 +1,74 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.samples.petclinic.PetClinicApplication;
+import org.springframework.samples.petclinic.system.StartupTimeline;
+
+/**
+ * Time until the application is ready, with and without the {@code fast-startup} profile. There is a single start
+ * per fork, so that each one loads and compiles its classes from scratch as a new instance does; after it, the fork
+ * prints how long each phase took and the slowest beans, see {@link StartupTimeline}.
+ * <p>
+ * On the embedded HSQLDB the schema is always missing, so skipping the scripts only shows on a persistent database,
+ * e.g. with {@code -jvmArgsAppend -Dspring.profiles.include=mysql}.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(5)
+@State(Scope.Benchmark)
+public class StartupBenchmarks {
+
+    @Param({"default", "fast-startup"})
+    public String profile;
+
+    private ConfigurableApplicationContext context;
+
+    @Benchmark
+    public ConfigurableApplicationContext start() {
+        this.context = new SpringApplicationBuilder(PetClinicApplication.class)
+            .profiles(this.profile)
+            .properties("server.port=0", "spring.main.banner-mode=off", "logging.level.root=WARN",
+                "petclinic.startup.report=true")
+            .run();
+        return this.context;
+    }
+
+    @TearDown(Level.Iteration)
+    public void stop() {
+        System.out.println(StartupTimeline.latest());
+        this.context.close();
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.PetClinicApplication;
+
+/**
+ * Throughput and latency percentiles of real HTTP requests from as many concurrent clients as the JMeter plan has,
+ * with Tomcat running requests on its platform thread pool or on virtual threads. Both modes share the pool size of
+ * the {@code virtual-threads} profile, so that only the threading differs; the virtual mode needs Java 21.
+ * <p>
+ * The sample time mode reports the p99 as {@code p0.99}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Dhttp.maxConnections=1000")
+@Threads(500)
+@State(Scope.Thread)
+public class ThreadModeBenchmarks {
+
+    private int next;
+
+    @Benchmark
+    public int ownerDetails(Server server) throws IOException {
+        return server.get("/owners/" + server.ownerId(this.next++));
+    }
+
+    @Benchmark
+    public int ownerSearch(Server server) throws IOException {
+        return server.get("/owners?lastName=" + ClinicState.LAST_NAMES[this.next++ % ClinicState.LAST_NAMES.length]);
+    }
+
+    @Benchmark
+    public int vetList(Server server) throws IOException {
+        return server.get("/vets.html");
+    }
+
+    /**
+     * The application on a random port, seeded like {@link ClinicState}.
+     */
+    @State(Scope.Benchmark)
+    public static class Server {
+
+        @Param({"platform", "virtual"})
+        public String threads;
+
+        @Param("1000")
+        public int owners;
+
+        private ConfigurableApplicationContext context;
+
+        private String baseUrl;
+
+        @Setup(Level.Trial)
+        public void start() {
+            this.context = new SpringApplicationBuilder(PetClinicApplication.class)
+                .profiles("virtual-threads")
+                .properties("server.port=0", "spring.main.banner-mode=off", "logging.level.root=WARN",
+                    "petclinic.virtual-threads.enabled=" + this.threads.equals("virtual"))
+                .run();
+            ClinicState.seed(this.context.getBean(JdbcTemplate.class), this.owners);
+            this.baseUrl = "http://localhost:" + this.context.getEnvironment().getProperty("local.server.port");
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            this.context.close();
+        }
+
+        int ownerId(int n) {
+            return ClinicState.FIRST_ID + Math.floorMod(n, this.owners);
+        }
+
+        /**
+         * Read the whole response, so that the connection goes back to the keep-alive cache.
+         */
+        int get(String path) throws IOException {
+            HttpURLConnection connection = (HttpURLConnection) new URL(this.baseUrl + path).openConnection();
+            int status = connection.getResponseCode();
+            try (InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                if (body != null) {
+                    byte[] buffer = new byte[8192];
+                    while (body.read(buffer) != -1) {
+                        // drain
+                    }
+                }
+            }
+            return status;
+        }
+
+    }
+
+}
@@ -18,13 +18,18 @@ package org.springframework.samples.petclinic.model;
 import java.io.Serializable;
 
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.MappedSuperclass;
 
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
 /**
  * Simple JavaBean domain object with an id property. Used as a base class for objects
  * needing this property.
+ * <p>
+ * Ids are handed out in blocks from the {@code id_generator} table, one row per entity table, rather than by
+ * identity columns: Hibernate has to know an id before the insert to be able to batch inserts over JDBC.
  *
  * @author Ken Krebs
  * @author Juergen Hoeller
@@ -32,7 +37,13 @@ import javax.persistence.MappedSuperclass;
 @MappedSuperclass
 public class BaseEntity implements Serializable {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "pooled_ids")
+    @GenericGenerator(name = "pooled_ids", strategy = "enhanced-table", parameters = {
+        @Parameter(name = "table_name", value = "id_generator"),
+        @Parameter(name = "prefer_entity_table_as_segment_value", value = "true"),
+        @Parameter(name = "optimizer", value = "pooled-lo"),
+        @Parameter(name = "increment_size", value = "50")
+    })
     private Integer id;
 
     public Integer getId() {
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Sorted, unmodifiable snapshot of an entity's collection, computed once and handed out until the owning entity
+ * {@link #invalidate() invalidates} it on mutation.
+ * <p>
+ * The snapshot is also recomputed when the entity's collection is replaced or changes size behind its back, as
+ * happens when Hibernate wraps or reloads a collection. Renaming or re-dating an element in place is not detected.
+ *
+ * @param <T> the element type
+ */
+public class SortedView<T> {
+
+    private final Comparator<? super T> comparator;
+
+    private Collection<T> source;
+
+    private int size;
+
+    private List<T> view;
+
+    public SortedView(Comparator<? super T> comparator) {
+        this.comparator = comparator;
+    }
+
+    public List<T> of(Collection<T> source) {
+        if (this.view == null || this.source != source || this.size != source.size()) {
+            List<T> sorted = new ArrayList<>(source);
+            sorted.sort(this.comparator);
+            this.view = Collections.unmodifiableList(sorted);
+            this.source = source;
+            this.size = sorted.size();
+        }
+        return this.view;
+    }
+
+    public void invalidate() {
+        this.view = null;
+        this.source = null;
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The outcome of an edit that was based on a stale version: the values saved in the meantime next to the values
+ * that were posted, field by field. The edit form shows them above the posted values, which now carry the saved
+ * version, so that submitting again keeps the posted values and reloading the form keeps the saved ones.
+ */
+public class EditConflict {
+
+    static final String MODEL_ATTRIBUTE = "conflict";
+
+    private final List<Field> fields = new ArrayList<>();
+
+    EditConflict field(String label, Object saved, Object posted) {
+        this.fields.add(new Field(label, saved, posted));
+        return this;
+    }
+
+    public List<Field> getFields() {
+        return Collections.unmodifiableList(this.fields);
+    }
+
+    /**
+     * One field of the edited object.
+     */
+    public static class Field {
+
+        private final String label;
+
+        private final String saved;
+
+        private final String posted;
+
+        Field(String label, Object saved, Object posted) {
+            this.label = label;
+            this.saved = saved == null ? "" : saved.toString();
+            this.posted = posted == null ? "" : posted.toString();
+        }
+
+        public String getLabel() {
+            return this.label;
+        }
+
+        public String getSaved() {
+            return this.saved;
+        }
+
+        public String getPosted() {
+            return this.posted;
+        }
+
+        /**
+         * @return whether the posted value differs from the saved one
+         */
+        public boolean isChanged() {
+            return !Objects.equals(this.saved, this.posted);
+        }
+
+    }
+
+}
@@ -15,24 +15,30 @@
  */
 package org.springframework.samples.petclinic.owner;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 
+import javax.persistence.Cacheable;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.OneToMany;
+import javax.persistence.OrderBy;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.constraints.Digits;
 import javax.validation.constraints.NotEmpty;
 
-import org.springframework.beans.support.MutableSortDefinition;
-import org.springframework.beans.support.PropertyComparator;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 import org.springframework.core.style.ToStringCreator;
 import org.springframework.samples.petclinic.model.Person;
+import org.springframework.samples.petclinic.model.SortedView;
 
 /**
  * Simple JavaBean domain object representing an owner.
@@ -44,7 +50,15 @@ import org.springframework.samples.petclinic.model.Person;
  */
 @Entity
 @Table(name = "owners")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "owner")
+@DynamicUpdate
+@EntityListeners({OwnerSearchIndex.ChangeListener.class, OwnerTypeahead.ChangeListener.class})
 public class Owner extends Person {
+
+    private static final Comparator<Pet> BY_NAME = Comparator.comparing(Pet::getName,
+        Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+
     @Column(name = "address")
     @NotEmpty
     private String address;
@@ -58,9 +72,35 @@ public class Owner extends Person {
     @Digits(fraction = 0, integer = 10)
     private String telephone;
 
+    /**
+     * The last name folded to lower case, computed by the database and indexed together with the id, so that
+     * searches are case-insensitive and still use an index range scan.
+     */
+    @Column(name = "last_name_search", insertable = false, updatable = false)
+    private String lastNameSearch;
+
+    /**
+     * Incremented by every update; part of the entity tag of the owner's page, and posted back by the edit form so
+     * that an edit based on a stale copy is rejected.
+     */
+    @Version
+    @Column(name = "version")
+    private Integer version;
+
     @OneToMany(cascade = CascadeType.ALL, mappedBy = "owner")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "owner-pets")
+    @OrderBy("name")
     private Set<Pet> pets;
 
+    private transient SortedView<Pet> sortedPets;
+
+    /**
+     * Fold a last name, or a prefix of one, the way the {@code last_name_search} column does.
+     */
+    public static String normalizeLastName(String lastName) {
+        return lastName == null ? null : lastName.toLowerCase(Locale.ROOT);
+    }
+
     public String getAddress() {
         return this.address;
     }
@@ -85,27 +125,44 @@ public class Owner extends Person {
         this.telephone = telephone;
     }
 
+    public Integer getVersion() {
+        return this.version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
     protected Set<Pet> getPetsInternal() {
         if (this.pets == null) {
-            this.pets = new HashSet<>();
+            this.pets = new LinkedHashSet<>();
         }
         return this.pets;
     }
 
     protected void setPetsInternal(Set<Pet> pets) {
         this.pets = pets;
+        if (this.sortedPets != null) {
+            this.sortedPets.invalidate();
+        }
     }
 
+    /**
+     * @return the pets sorted by name, the same unmodifiable list on every call until a pet is added
+     */
     public List<Pet> getPets() {
-        List<Pet> sortedPets = new ArrayList<>(getPetsInternal());
-        PropertyComparator.sort(sortedPets,
-                new MutableSortDefinition("name", true, true));
-        return Collections.unmodifiableList(sortedPets);
+        if (this.sortedPets == null) {
+            this.sortedPets = new SortedView<>(BY_NAME);
+        }
+        return this.sortedPets.of(getPetsInternal());
     }
 
     public void addPet(Pet pet) {
         if (pet.isNew()) {
             getPetsInternal().add(pet);
+            if (this.sortedPets != null) {
+                this.sortedPets.invalidate();
+            }
         }
         pet.setOwner(this);
     }
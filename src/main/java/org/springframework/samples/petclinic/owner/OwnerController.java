@@ -15,6 +15,13 @@
  */
 package org.springframework.samples.petclinic.owner;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.samples.petclinic.system.ETags;
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.samples.petclinic.visit.VisitRepository;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -23,11 +30,14 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.InitBinder;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.ModelAndView;
 
 import javax.validation.Valid;
-import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * @author Juergen Hoeller
@@ -40,10 +50,21 @@ class OwnerController {
 
     private static final String VIEWS_OWNER_CREATE_OR_UPDATE_FORM = "owners/createOrUpdateOwnerForm";
     private final OwnerRepository owners;
+    private final VisitRepository visits;
+    private final int pageSize;
+    private final int latestVisits;
+    private final VisitWriteBehind writeBehind;
 
 
-    public OwnerController(OwnerRepository clinicService) {
+    public OwnerController(OwnerRepository clinicService, VisitRepository visits,
+                           @Value("${petclinic.owners.page-size:20}") int pageSize,
+                           @Value("${petclinic.visits.latest-per-pet:5}") int latestVisits,
+                           ObjectProvider<VisitWriteBehind> writeBehind) {
         this.owners = clinicService;
+        this.visits = visits;
+        this.pageSize = pageSize;
+        this.latestVisits = latestVisits;
+        this.writeBehind = writeBehind.getIfAvailable();
     }
 
     @InitBinder
@@ -75,26 +96,33 @@ class OwnerController {
     }
 
     @GetMapping("/owners")
-    public String processFindForm(Owner owner, BindingResult result, Map<String, Object> model) {
+    public String processFindForm(Owner owner, BindingResult result, Map<String, Object> model,
+                                  @RequestParam(value = "afterName", required = false) String afterName,
+                                  @RequestParam(value = "afterId", required = false) Integer afterId,
+                                  @RequestParam(value = "beforeName", required = false) String beforeName,
+                                  @RequestParam(value = "beforeId", required = false) Integer beforeId) {
 
         // allow parameterless GET request for /owners to return all records
         if (owner.getLastName() == null) {
             owner.setLastName(""); // empty string signifies broadest possible search
         }
 
-        // find owners by last name
-        Collection<Owner> results = this.owners.findByLastName(owner.getLastName());
+        // find one page of owners by last name, seeking from the cursor if there is one
+        OwnerPage results = (beforeId != null && beforeName != null)
+            ? this.owners.findPageByLastNameBefore(owner.getLastName(), beforeName, beforeId, this.pageSize)
+            : this.owners.findPageByLastName(owner.getLastName(), afterName, afterName != null ? afterId : null, this.pageSize);
         if (results.isEmpty()) {
             // no owners found
             result.rejectValue("lastName", "notFound", "not found");
             return "owners/findOwners";
-        } else if (results.size() == 1) {
+        } else if (results.getSize() == 1 && !results.hasPrevious() && !results.hasNext()) {
             // 1 owner found
-            owner = results.iterator().next();
+            owner = results.getFirst();
             return "redirect:/owners/" + owner.getId();
         } else {
             // multiple owners found
-            model.put("selections", results);
+            model.put("selections", results.getContent());
+            model.put("page", results);
             return "owners/ownersList";
         }
     }
@@ -106,27 +134,63 @@ class OwnerController {
         return VIEWS_OWNER_CREATE_OR_UPDATE_FORM;
     }
 
+    /**
+     * Save the posted owner if it was edited from the version that is still current. Otherwise nothing is saved and
+     * the form comes back with the values saved in the meantime next to the posted ones, and with the current version,
+     * so that submitting it again overrides them. No lock is held between showing the form and saving it.
+     */
     @PostMapping("/owners/{ownerId}/edit")
-    public String processUpdateOwnerForm(@Valid Owner owner, BindingResult result, @PathVariable("ownerId") int ownerId) {
+    public String processUpdateOwnerForm(@Valid Owner owner, BindingResult result, @PathVariable("ownerId") int ownerId,
+                                         Model model) {
         if (result.hasErrors()) {
             return VIEWS_OWNER_CREATE_OR_UPDATE_FORM;
-        } else {
-            owner.setId(ownerId);
-            this.owners.save(owner);
-            return "redirect:/owners/{ownerId}";
         }
+        owner.setId(ownerId);
+        if (owner.getVersion() != null) {
+            try {
+                this.owners.updateDetails(owner);
+                return "redirect:/owners/{ownerId}";
+            } catch (OptimisticLockingFailureException ex) {
+                // fall through to the conflict
+            }
+        }
+        Owner saved = this.owners.findById(ownerId);
+        owner.setVersion(saved.getVersion());
+        model.addAttribute(EditConflict.MODEL_ATTRIBUTE, new EditConflict()
+            .field("First Name", saved.getFirstName(), owner.getFirstName())
+            .field("Last Name", saved.getLastName(), owner.getLastName())
+            .field("Address", saved.getAddress(), owner.getAddress())
+            .field("City", saved.getCity(), owner.getCity())
+            .field("Telephone", saved.getTelephone(), owner.getTelephone()));
+        return VIEWS_OWNER_CREATE_OR_UPDATE_FORM;
     }
 
     /**
-     * Custom handler for displaying an owner.
+     * Custom handler for displaying an owner. A client that sends back the {@code ETag} of the current state of the
+     * owner, its pets and their visits gets a 304 answer, without the owner being loaded or the page rendered.
+     * Otherwise only the latest visits of each pet are loaded, one bounded page per pet after a single count, the
+     * rest being one click away.
+     * Visits queued to be written behind are shown too, and the page is not cached while there are any.
      *
      * @param ownerId the ID of the owner to display
-     * @return a ModelMap with the model attributes for the view
+     * @return a ModelMap with the model attributes for the view, or {@code null} if not modified
      */
     @GetMapping("/owners/{ownerId}")
-    public ModelAndView showOwner(@PathVariable("ownerId") int ownerId) {
+    public ModelAndView showOwner(@PathVariable("ownerId") int ownerId, WebRequest request) {
+        boolean pending = this.writeBehind != null && this.writeBehind.hasPending(ownerId);
+        String tag = pending ? null : this.owners.findDetailsTagById(ownerId);
+        if (tag != null && request.checkNotModified(ETags.of("owner", ownerId, tag))) {
+            return null;
+        }
         ModelAndView mav = new ModelAndView("owners/ownerDetails");
-        mav.addObject(this.owners.findById(ownerId));
+        Owner owner = this.owners.findById(ownerId);
+        mav.addObject(owner);
+        List<Integer> petIds = owner.getPets().stream().map(Pet::getId).collect(Collectors.toList());
+        Map<Integer, Page<Visit>> latestVisits = this.visits.findLatestPagesByPetIdIn(petIds, this.latestVisits);
+        if (pending) {
+            latestVisits.replaceAll(this.writeBehind::withPending);
+        }
+        mav.addObject("visits", latestVisits);
         return mav;
     }
 
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.time.LocalDate;
+
+/**
+ * One flattened owner / pet / visit row of the clinic export. Rows are built by a JPQL constructor expression, so
+ * reading them never adds managed entities to the persistence context. Pet and visit columns are {@code null} for
+ * owners without pets and pets without visits.
+ *
+ * @see OwnerRepository#streamAllForExport()
+ */
+public class OwnerExportRow {
+
+    static final String[] COLUMNS = {"owner_id", "first_name", "last_name", "address", "city", "telephone",
+        "pet_id", "pet_name", "birth_date", "pet_type", "visit_id", "visit_date", "visit_description"};
+
+    private final Integer ownerId;
+    private final String firstName;
+    private final String lastName;
+    private final String address;
+    private final String city;
+    private final String telephone;
+    private final Integer petId;
+    private final String petName;
+    private final LocalDate birthDate;
+    private final String petType;
+    private final Integer visitId;
+    private final LocalDate visitDate;
+    private final String visitDescription;
+
+    public OwnerExportRow(Integer ownerId, String firstName, String lastName, String address, String city,
+                          String telephone, Integer petId, String petName, LocalDate birthDate, String petType,
+                          Integer visitId, LocalDate visitDate, String visitDescription) {
+        this.ownerId = ownerId;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.address = address;
+        this.city = city;
+        this.telephone = telephone;
+        this.petId = petId;
+        this.petName = petName;
+        this.birthDate = birthDate;
+        this.petType = petType;
+        this.visitId = visitId;
+        this.visitDate = visitDate;
+        this.visitDescription = visitDescription;
+    }
+
+    /**
+     * @return the column values in the order of {@link #COLUMNS}
+     */
+    Object[] values() {
+        return new Object[]{this.ownerId, this.firstName, this.lastName, this.address, this.city, this.telephone,
+            this.petId, this.petName, this.birthDate, this.petType, this.visitId, this.visitDate,
+            this.visitDescription};
+    }
+
+    public Integer getOwnerId() {
+        return this.ownerId;
+    }
+
+    public Integer getPetId() {
+        return this.petId;
+    }
+
+    public Integer getVisitId() {
+        return this.visitId;
+    }
+
+    public String getLastName() {
+        return this.lastName;
+    }
+
+    public String getPetName() {
+        return this.petName;
+    }
+
+    public String getPetType() {
+        return this.petType;
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.io.BufferedWriter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Writes the full owner / pet / visit data set to an {@link OutputStream} as CSV or newline-delimited JSON.
+ * <p>
+ * Rows are pulled from a forward-only cursor and written as they arrive; every {@link #CHUNK_SIZE} rows the output
+ * is flushed and the persistence context cleared, so heap use stays flat whatever the number of rows.
+ *
+ * @see OwnerRepository#streamAllForExport()
+ */
+@Component
+class OwnerExporter {
+
+    static final int CHUNK_SIZE = 500;
+
+    private final OwnerRepository owners;
+
+    private final EntityManager entityManager;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public OwnerExporter(OwnerRepository owners, EntityManager entityManager) {
+        this.owners = owners;
+        this.entityManager = entityManager;
+    }
+
+    @Transactional(readOnly = true)
+    public long exportCsv(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writeCsvLine(writer, OwnerExportRow.COLUMNS);
+        long count = 0;
+        try (Stream<OwnerExportRow> rows = this.owners.streamAllForExport()) {
+            Iterator<OwnerExportRow> it = rows.iterator();
+            while (it.hasNext()) {
+                writeCsvLine(writer, it.next().values());
+                if (++count % CHUNK_SIZE == 0) {
+                    endChunk(writer);
+                }
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    @Transactional(readOnly = true)
+    public long exportNdjson(OutputStream out) throws IOException {
+        JsonGenerator json = this.jsonFactory.createGenerator(out, JsonEncoding.UTF8);
+        json.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+        long count = 0;
+        try (Stream<OwnerExportRow> rows = this.owners.streamAllForExport()) {
+            Iterator<OwnerExportRow> it = rows.iterator();
+            while (it.hasNext()) {
+                Object[] values = it.next().values();
+                json.writeStartObject();
+                for (int i = 0; i < values.length; i++) {
+                    json.writeFieldName(OwnerExportRow.COLUMNS[i]);
+                    writeJsonValue(json, values[i]);
+                }
+                json.writeEndObject();
+                if (++count % CHUNK_SIZE == 0) {
+                    endChunk(json);
+                }
+            }
+        }
+        json.writeRaw('\n');
+        json.flush();
+        return count;
+    }
+
+    private void endChunk(Flushable output) throws IOException {
+        output.flush();
+        this.entityManager.clear();
+    }
+
+    private static void writeCsvLine(Writer writer, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            if (values[i] != null) {
+                writer.write(escapeCsv(values[i].toString()));
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    static String escapeCsv(String value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        return quote ? '"' + value.replace("\"", "\"\"") + '"' : value;
+    }
+
+    private static void writeJsonValue(JsonGenerator json, Object value) throws IOException {
+        if (value == null) {
+            json.writeNull();
+        } else if (value instanceof Integer) {
+            json.writeNumber((Integer) value);
+        } else {
+            json.writeString(value.toString());
+        }
+    }
+
+}
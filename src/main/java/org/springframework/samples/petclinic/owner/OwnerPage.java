@@ -0,0 +1,76 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of an owner search, ordered by last name and id. The first and last owners of the page act as the
+ * keyset cursors for the previous and next pages, so no page ever needs an offset scan.
+ *
+ * @see OwnerRepository#findPageByLastName(String, String, Integer, int)
+ * @see OwnerRepository#findPageByLastNameBefore(String, String, Integer, int)
+ */
+public class OwnerPage {
+
+    private final List<Owner> content;
+
+    private final boolean previous;
+
+    private final boolean next;
+
+    public OwnerPage(List<Owner> content, boolean previous, boolean next) {
+        this.content = Collections.unmodifiableList(content);
+        this.previous = previous;
+        this.next = next;
+    }
+
+    public List<Owner> getContent() {
+        return this.content;
+    }
+
+    public boolean isEmpty() {
+        return this.content.isEmpty();
+    }
+
+    public int getSize() {
+        return this.content.size();
+    }
+
+    public boolean hasPrevious() {
+        return this.previous;
+    }
+
+    public boolean hasNext() {
+        return this.next;
+    }
+
+    /**
+     * @return the first owner of the page, the cursor for the previous page
+     */
+    public Owner getFirst() {
+        return this.content.isEmpty() ? null : this.content.get(0);
+    }
+
+    /**
+     * @return the last owner of the page, the cursor for the next page
+     */
+    public Owner getLast() {
+        return this.content.isEmpty() ? null : this.content.get(this.content.size() - 1);
+    }
+
+}
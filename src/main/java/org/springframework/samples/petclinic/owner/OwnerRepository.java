@@ -16,11 +16,21 @@
 package org.springframework.samples.petclinic.owner;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
 
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.Repository;
 import org.springframework.data.repository.query.Param;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 
 /**
  * Repository class for <code>Owner</code> domain objects All method names are compliant with Spring Data naming
@@ -35,29 +45,217 @@ public interface OwnerRepository extends Repository<Owner, Integer> {
 
     /**
      * Retrieve {@link Owner}s from the data store by last name, returning all owners
-     * whose last name <i>starts</i> with the given name.
+     * whose last name <i>starts</i> with the given name, ignoring case. Uses the "list" fetch plan: owners and their
+     * pets only, pet types and visits are left unloaded.
      * @param lastName Value to search for
      * @return a Collection of matching {@link Owner}s (or an empty Collection if none
      * found)
      */
-    @Query("SELECT DISTINCT owner FROM Owner owner left join fetch owner.pets WHERE owner.lastName LIKE :lastName%")
     @Transactional(readOnly = true)
-    Collection<Owner> findByLastName(@Param("lastName") String lastName);
+    default Collection<Owner> findByLastName(String lastName) {
+        return findByLastNameSearch(Owner.normalizeLastName(lastName));
+    }
+
+    @Query("SELECT DISTINCT owner FROM Owner owner left join fetch owner.pets "
+        + "WHERE owner.lastNameSearch LIKE :lastName%")
+    @Transactional(readOnly = true)
+    Collection<Owner> findByLastNameSearch(@Param("lastName") String lastName);
+
+    /**
+     * Retrieve one page of {@link Owner}s whose last name <i>starts</i> with the given name, ordered by case-folded
+     * last name and id, starting right after the given cursor. Only the owners of the page are loaded, so the cost of a
+     * request depends on the page size rather than on the number of matching owners.
+     * @param lastName Value to search for
+     * @param afterName last name of the cursor owner, or {@code null} for the first page
+     * @param afterId id of the cursor owner, or {@code null} for the first page
+     * @param size the maximum number of owners on the page
+     * @return the page of matching {@link Owner}s
+     */
+    @Transactional(readOnly = true)
+    default OwnerPage findPageByLastName(String lastName, String afterName, Integer afterId, int size) {
+        boolean first = afterId == null;
+        List<Integer> ids = findIdsByLastNameAfter(Owner.normalizeLastName(lastName),
+            first ? "" : Owner.normalizeLastName(afterName), first ? 0 : afterId, PageRequest.of(0, size + 1));
+        boolean next = ids.size() > size;
+        return new OwnerPage(findByIdIn(next ? ids.subList(0, size) : ids), !first, next);
+    }
+
+    /**
+     * Retrieve the page of {@link Owner}s whose last name <i>starts</i> with the given name that ends right
+     * before the given cursor, ordered by last name and id.
+     * @param lastName Value to search for
+     * @param beforeName last name of the cursor owner
+     * @param beforeId id of the cursor owner
+     * @param size the maximum number of owners on the page
+     * @return the page of matching {@link Owner}s
+     */
+    @Transactional(readOnly = true)
+    default OwnerPage findPageByLastNameBefore(String lastName, String beforeName, Integer beforeId, int size) {
+        List<Integer> ids = findIdsByLastNameBefore(Owner.normalizeLastName(lastName),
+            Owner.normalizeLastName(beforeName), beforeId, PageRequest.of(0, size + 1));
+        boolean previous = ids.size() > size;
+        return new OwnerPage(findByIdIn(previous ? ids.subList(0, size) : ids), previous, true);
+    }
+
+    /**
+     * Seek the ids of the owners following the cursor {@code (afterName, afterId)}, using the
+     * {@code (last_name_search, id)} index instead of an offset scan. All names must already be normalized.
+     */
+    @Query("SELECT owner.id FROM Owner owner WHERE owner.lastNameSearch LIKE :lastName% "
+        + "AND (owner.lastNameSearch > :afterName OR (owner.lastNameSearch = :afterName AND owner.id > :afterId)) "
+        + "ORDER BY owner.lastNameSearch, owner.id")
+    @Transactional(readOnly = true)
+    List<Integer> findIdsByLastNameAfter(@Param("lastName") String lastName, @Param("afterName") String afterName,
+                                         @Param("afterId") Integer afterId, Pageable pageable);
+
+    /**
+     * Seek the ids of the owners preceding the cursor {@code (beforeName, beforeId)}, nearest first.
+     */
+    @Query("SELECT owner.id FROM Owner owner WHERE owner.lastNameSearch LIKE :lastName% "
+        + "AND (owner.lastNameSearch < :beforeName OR (owner.lastNameSearch = :beforeName AND owner.id < :beforeId)) "
+        + "ORDER BY owner.lastNameSearch DESC, owner.id DESC")
+    @Transactional(readOnly = true)
+    List<Integer> findIdsByLastNameBefore(@Param("lastName") String lastName, @Param("beforeName") String beforeName,
+                                          @Param("beforeId") Integer beforeId, Pageable pageable);
 
     /**
-     * Retrieve an {@link Owner} from the data store by id.
+     * Retrieve the {@link Owner}s with the given ids, together with their pets, ordered by last name and id. Uses
+     * the same "list" fetch plan as {@link #findByLastName(String)}.
+     * @param ids the ids to load
+     * @return the matching {@link Owner}s
+     */
+    @Transactional(readOnly = true)
+    default List<Owner> findByIdIn(Collection<Integer> ids) {
+        return ids.isEmpty() ? Collections.emptyList() : findAllByIdIn(ids);
+    }
+
+    @Query("SELECT DISTINCT owner FROM Owner owner left join fetch owner.pets WHERE owner.id IN :ids "
+        + "ORDER BY owner.lastNameSearch, owner.id")
+    @Transactional(readOnly = true)
+    List<Owner> findAllByIdIn(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Retrieve an {@link Owner} from the data store by id, with the "details" fetch plan: the owner, its pets and
+     * their types in one query, and the visits of all pets in one more when they are first accessed. The result is
+     * kept in the query cache, so a warm owner is assembled from the second-level cache without touching the
+     * database.
      * @param id the id to search for
      * @return the {@link Owner} if found
      */
-    @Query("SELECT owner FROM Owner owner left join fetch owner.pets WHERE owner.id =:id")
+    @Query("SELECT owner FROM Owner owner left join fetch owner.pets pet left join fetch pet.type WHERE owner.id =:id")
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     @Transactional(readOnly = true)
     Owner findById(@Param("id") Integer id);
 
+    /**
+     * Compute a tag that changes whenever anything shown on the details page of an {@link Owner} changes: the owner,
+     * its pets or their visits. It is a single aggregate over the version columns and visit ids, no entity is loaded.
+     * @param id the id of the owner
+     * @return the tag, or {@code null} if there is no such owner
+     */
+    @Transactional(readOnly = true)
+    default String findDetailsTagById(Integer id) {
+        List<Object[]> versions = findDetailsVersionsById(id);
+        return versions.isEmpty() ? null : StringUtils.arrayToDelimitedString(versions.get(0), ".");
+    }
+
+    @Query("SELECT owner.version, COUNT(DISTINCT pet.id), COALESCE(SUM(pet.version), 0), COUNT(visit.id), "
+        + "COALESCE(MAX(visit.id), 0), COALESCE(SUM(visit.version), 0) "
+        + "FROM Owner owner LEFT JOIN owner.pets pet LEFT JOIN pet.visits visit "
+        + "WHERE owner.id = :id GROUP BY owner.id, owner.version")
+    @Transactional(readOnly = true)
+    List<Object[]> findDetailsVersionsById(@Param("id") Integer id);
+
+    /**
+     * Walk all owners joined to their pets, pet types and visits as flat {@link OwnerExportRow}s, ordered by owner,
+     * pet and visit id. The rows are read through a forward-only cursor, so this must be called within a
+     * transaction and the returned {@link Stream} must be closed.
+     * @return a {@link Stream} over every owner / pet / visit combination
+     */
+    @Query("SELECT new org.springframework.samples.petclinic.owner.OwnerExportRow(owner.id, owner.firstName, "
+        + "owner.lastName, owner.address, owner.city, owner.telephone, pet.id, pet.name, pet.birthDate, ptype.name, "
+        + "visit.id, visit.date, visit.description) "
+        + "FROM Owner owner LEFT JOIN owner.pets pet LEFT JOIN pet.type ptype LEFT JOIN pet.visits visit "
+        + "ORDER BY owner.id, pet.id, visit.id")
+    @QueryHints({
+        @QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+        @QueryHint(name = "org.hibernate.readOnly", value = "true")})
+    @Transactional(readOnly = true)
+    Stream<OwnerExportRow> streamAllForExport();
+
+    /**
+     * Walk the searchable fields of all owners and their pets as {@link OwnerSearchRow}s, ordered by owner id,
+     * through a forward-only cursor. Must be called within a transaction, and the returned {@link Stream} must be
+     * closed.
+     * @return a {@link Stream} over every owner / pet combination
+     */
+    @Query("SELECT new org.springframework.samples.petclinic.owner.OwnerSearchRow(owner.id, owner.firstName, "
+        + "owner.lastName, owner.city, owner.telephone, pet.name, ptype.name) "
+        + "FROM Owner owner LEFT JOIN owner.pets pet LEFT JOIN pet.type ptype ORDER BY owner.id")
+    @QueryHints({
+        @QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+        @QueryHint(name = "org.hibernate.readOnly", value = "true")})
+    @Transactional(readOnly = true)
+    Stream<OwnerSearchRow> streamAllForSearch();
+
+    /**
+     * Retrieve the searchable fields of some owners and their pets.
+     * @param ids the ids of the owners
+     * @return one row per pet, a single row for an owner without pets, and none for an id without owner, by owner id
+     */
+    @Query("SELECT new org.springframework.samples.petclinic.owner.OwnerSearchRow(owner.id, owner.firstName, "
+        + "owner.lastName, owner.city, owner.telephone, pet.name, ptype.name) "
+        + "FROM Owner owner LEFT JOIN owner.pets pet LEFT JOIN pet.type ptype WHERE owner.id IN :ids ORDER BY owner.id")
+    @Transactional(readOnly = true)
+    List<OwnerSearchRow> findSearchRowsByIdIn(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Walk the names of all owners as {@link OwnerSuggestion}s through a forward-only cursor. Must be called within
+     * a transaction, and the returned {@link Stream} must be closed.
+     * @return a {@link Stream} over every owner
+     */
+    @Query("SELECT new org.springframework.samples.petclinic.owner.OwnerSuggestion(owner.id, owner.firstName, "
+        + "owner.lastName) FROM Owner owner")
+    @QueryHints({
+        @QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+        @QueryHint(name = "org.hibernate.readOnly", value = "true")})
+    @Transactional(readOnly = true)
+    Stream<OwnerSuggestion> streamAllSuggestions();
+
     /**
      * Save an {@link Owner} to the data store, either inserting or updating it.
      * @param owner the {@link Owner} to save
      */
     void save(Owner owner);
 
+    /**
+     * Apply the fields edited on the owner form to the stored {@link Owner}, if it still has the version the form
+     * was built from. Only the owner row is read, its pets are neither loaded nor merged, and the update sets the
+     * changed columns only; it is skipped altogether if nothing changed.
+     * @param edited the edited owner, with the id and version of the stored one
+     * @return the updated {@link Owner}
+     * @throws ObjectOptimisticLockingFailureException if the owner was changed or removed since that version
+     */
+    @Transactional
+    default Owner updateDetails(Owner edited) {
+        Owner owner = findRowById(edited.getId());
+        if (owner == null || !owner.getVersion().equals(edited.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Owner.class, edited.getId());
+        }
+        owner.setFirstName(edited.getFirstName());
+        owner.setLastName(edited.getLastName());
+        owner.setAddress(edited.getAddress());
+        owner.setCity(edited.getCity());
+        owner.setTelephone(edited.getTelephone());
+        return owner;
+    }
+
+    /**
+     * Retrieve the row of an {@link Owner} from the database, bypassing the second-level cache, without its pets.
+     */
+    @Query("SELECT owner FROM Owner owner WHERE owner.id = :id")
+    @Transactional(readOnly = true)
+    Owner findRowById(@Param("id") Integer id);
+
 
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+/**
+ * Free-text search over owners and their pets, served by the {@link OwnerSearchIndex}, and name suggestions for the
+ * find owners form, served by the {@link OwnerTypeahead}.
+ */
+@Controller
+class OwnerSearchController {
+
+    private static final int MAX_RESULTS = 50;
+
+    private static final int MAX_SUGGESTIONS = 10;
+
+    private final OwnerSearchIndex index;
+
+    private final OwnerTypeahead typeahead;
+
+    private final OwnerRepository owners;
+
+    public OwnerSearchController(OwnerSearchIndex index, OwnerTypeahead typeahead, OwnerRepository owners) {
+        this.index = index;
+        this.typeahead = typeahead;
+        this.owners = owners;
+    }
+
+    @GetMapping("/owners/search")
+    public String search(@RequestParam(name = "q", defaultValue = "") String query, Map<String, Object> model) {
+        model.put("query", query);
+        if (!query.trim().isEmpty()) {
+            OwnerSearchIndex.Result result = this.index.search(query, MAX_RESULTS);
+            model.put("selections", this.owners.findByIdIn(result.getIds()));
+            model.put("total", result.getTotal());
+            model.put("totalExact", result.isTotalExact());
+        }
+        return "owners/searchOwners";
+    }
+
+    @GetMapping("/owners/typeahead")
+    public @ResponseBody List<OwnerSuggestion> typeahead(@RequestParam(name = "q", defaultValue = "") String query) {
+        return this.typeahead.suggest(query, MAX_SUGGESTIONS);
+    }
+
+}
@@ -0,0 +1,676 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.samples.petclinic.model.AfterCommit;
+import org.springframework.samples.petclinic.system.PrimaryReads;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * In-memory inverted index over the first name, last name, city and telephone of every {@link Owner}, and the names
+ * and {@link PetType types} of its pets, for free-text search without {@code LIKE '%x%'} table scans.
+ * <p>
+ * Every query word must match a prefix of some indexed word of the owner; digit sequences of three or more also
+ * match anywhere in the telephone number, through an index of its trigrams. The postings of all query words are
+ * intersected in id order, led by the most selective word and skipping ahead in the others, and the walk stops once
+ * {@value #COUNT_LIMIT} matches are counted, so a common word costs no more than a rare one past that point.
+ * <p>
+ * The postings are immutable, built on a background thread at startup. Owners and pets written afterwards are
+ * queued once their transaction commits and re-indexed from the data store on that thread into a small overlay that
+ * takes precedence over the postings, which are rebuilt once the overlay grows past {@value #REBUILD_THRESHOLD}
+ * owners. A search never waits for, nor queries, the data store.
+ */
+@Component
+public class OwnerSearchIndex {
+
+    /**
+     * The number of matches past which a search stops counting.
+     */
+    static final int COUNT_LIMIT = 1000;
+
+    private static final int REBUILD_THRESHOLD = 1000;
+
+    private static final Log logger = LogFactory.getLog(OwnerSearchIndex.class);
+
+    /**
+     * The queues of changed owners of all indexes, one per application context.
+     */
+    private static final Set<BlockingQueue<Integer>> queues = new CopyOnWriteArraySet<>();
+
+    private static final String TRIGRAM = "#";
+
+    private final OwnerRepository owners;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ExecutorService indexer = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "owner-search-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final BlockingQueue<Integer> changed = new LinkedBlockingQueue<>();
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private final Map<Integer, Document> updates = new ConcurrentHashMap<>();
+
+    private volatile Snapshot snapshot = new Snapshot(new TreeMap<>(), new Document[0]);
+
+    public OwnerSearchIndex(OwnerRepository owners, PlatformTransactionManager transactionManager) {
+        this.owners = owners;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        queues.add(this.changed);
+    }
+
+    /**
+     * Find the owners matching all words of the query.
+     * @param query free text, e.g. {@code "davis madison"} or {@code "5551"}
+     * @param limit the maximum number of ids to return
+     * @return the ids of the first {@code limit} matching owners, by id, and the number of matches, counted up to
+     * {@value #COUNT_LIMIT}
+     */
+    public Result search(String query, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return new Result(Collections.emptyList(), 0, true);
+        }
+        Snapshot snapshot = this.snapshot;
+        Map<Integer, Document> updates = this.updates;
+        List<Integer> ids = new ArrayList<>();
+        int total = 0;
+        for (Map.Entry<Integer, Document> update : updates.entrySet()) {
+            if (update.getValue().matchesAll(tokens)) {
+                ids.add(update.getKey());
+                total++;
+            }
+        }
+        Cursor[] cursors = new Cursor[tokens.size()];
+        for (int i = 0; i < cursors.length; i++) {
+            cursors[i] = snapshot.cursor(tokens.get(i));
+        }
+        Arrays.sort(cursors, Comparator.comparingLong(Cursor::cost));
+        int matched = 0;
+        int candidate = cursors[0].advance(0);
+        while (candidate != Cursor.NONE && total < COUNT_LIMIT) {
+            int next = candidate;
+            for (int i = 1; i < cursors.length && next == candidate; i++) {
+                next = cursors[i].advance(candidate);
+            }
+            if (next != candidate) {
+                candidate = cursors[0].advance(next);
+                continue;
+            }
+            // the postings of owners in the overlay are stale, those were matched against their new document
+            if (!updates.containsKey(candidate)) {
+                if (matched++ < limit) {
+                    ids.add(candidate);
+                }
+                total++;
+            }
+            candidate = cursors[0].advance(candidate + 1);
+        }
+        Collections.sort(ids);
+        return new Result(ids.size() > limit ? new ArrayList<>(ids.subList(0, limit)) : ids, total,
+            candidate == Cursor.NONE);
+    }
+
+    /**
+     * Build the index, then keep re-indexing the owners written since, on the background thread.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        this.indexer.execute(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException ex) {
+                logger.warn("Could not build the owner search index", ex);
+            }
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    Set<Integer> ids = new TreeSet<>();
+                    ids.add(this.changed.take());
+                    this.changed.drainTo(ids);
+                    try {
+                        reindex(ids);
+                    } catch (RuntimeException ex) {
+                        logger.warn("Could not re-index owners " + ids, ex);
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        queues.remove(this.changed);
+        this.indexer.shutdownNow();
+    }
+
+    /**
+     * Rebuild the whole index from the data store. Owners re-indexed before the read started are part of the new
+     * postings and leave the overlay.
+     */
+    public void rebuild() {
+        this.writeLock.lock();
+        try {
+            Map<String, Postings> built = new HashMap<>();
+            List<Document> documents = new ArrayList<>();
+            PrimaryReads.call(() -> this.transactionTemplate.execute(status -> {
+                try (Stream<OwnerSearchRow> rows = this.owners.streamAllForSearch()) {
+                    Iterator<OwnerSearchRow> iterator = rows.iterator();
+                    List<OwnerSearchRow> group = new ArrayList<>();
+                    while (iterator.hasNext()) {
+                        OwnerSearchRow row = iterator.next();
+                        if (!group.isEmpty() && !group.get(0).getOwnerId().equals(row.getOwnerId())) {
+                            load(group, built, documents);
+                            group.clear();
+                        }
+                        group.add(row);
+                    }
+                    if (!group.isEmpty()) {
+                        load(group, built, documents);
+                    }
+                }
+                return null;
+            }));
+            TreeMap<String, int[]> postings = new TreeMap<>();
+            built.forEach((key, ids) -> postings.put(key, ids.toArray()));
+            this.snapshot = new Snapshot(postings, documents.toArray(new Document[0]));
+            this.updates.clear();
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    /**
+     * Re-index the owners queued since the last call, in a single query. Runs on the background thread, or
+     * directly when the index is used on its own.
+     */
+    void applyChanges() {
+        Set<Integer> ids = new TreeSet<>();
+        this.changed.drainTo(ids);
+        if (!ids.isEmpty()) {
+            reindex(ids);
+        }
+    }
+
+    private void reindex(Set<Integer> ids) {
+        this.writeLock.lock();
+        try {
+            Map<Integer, List<OwnerSearchRow>> rows = new HashMap<>();
+            for (OwnerSearchRow row : PrimaryReads.call(() -> this.owners.findSearchRowsByIdIn(ids))) {
+                rows.computeIfAbsent(row.getOwnerId(), id -> new ArrayList<>()).add(row);
+            }
+            for (Integer id : ids) {
+                List<OwnerSearchRow> owner = rows.get(id);
+                this.updates.put(id, owner == null ? Document.DELETED : document(owner, null));
+            }
+            if (this.updates.size() > REBUILD_THRESHOLD) {
+                rebuild();
+            }
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    private void load(List<OwnerSearchRow> rows, Map<String, Postings> built, List<Document> documents) {
+        Document document = document(rows, built);
+        int id = rows.get(0).getOwnerId();
+        while (documents.size() <= id) {
+            documents.add(null);
+        }
+        documents.set(id, document);
+        for (String key : document.keys()) {
+            built.get(key).add(id);
+        }
+    }
+
+    /**
+     * Build the document of one owner. While building the whole index, the terms are shared with the keys of the
+     * postings, so that each distinct word is held in memory once.
+     */
+    private Document document(List<OwnerSearchRow> rows, Map<String, Postings> built) {
+        OwnerSearchRow owner = rows.get(0);
+        Set<String> terms = new LinkedHashSet<>();
+        terms.addAll(tokenize(owner.getFirstName()));
+        terms.addAll(tokenize(owner.getLastName()));
+        terms.addAll(tokenize(owner.getCity()));
+        terms.addAll(tokenize(owner.getTelephone()));
+        for (OwnerSearchRow row : rows) {
+            terms.addAll(tokenize(row.getPetName()));
+            terms.addAll(tokenize(row.getPetType()));
+        }
+        String telephone = owner.getTelephone();
+        if (built != null) {
+            for (String key : Document.keys(terms, telephone)) {
+                built.computeIfAbsent(key, Postings::new);
+            }
+            Set<String> shared = new LinkedHashSet<>();
+            for (String term : terms) {
+                shared.add(built.get(term).key);
+            }
+            terms = shared;
+        }
+        return new Document(terms.toArray(new String[0]), telephone);
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null) {
+            return Collections.emptyList();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * The ids of the first matching owners, and the number of matches.
+     */
+    public static final class Result {
+
+        private final List<Integer> ids;
+
+        private final int total;
+
+        private final boolean totalExact;
+
+        Result(List<Integer> ids, int total, boolean totalExact) {
+            this.ids = ids;
+            this.total = total;
+            this.totalExact = totalExact;
+        }
+
+        public List<Integer> getIds() {
+            return this.ids;
+        }
+
+        /**
+         * @return the number of matches, or {@value #COUNT_LIMIT} if there are at least as many
+         */
+        public int getTotal() {
+            return this.total;
+        }
+
+        /**
+         * @return whether all matches were counted, rather than the first {@value #COUNT_LIMIT}
+         */
+        public boolean isTotalExact() {
+            return this.totalExact;
+        }
+
+    }
+
+    /**
+     * The immutable postings, by key, and the documents they were built from, by owner id.
+     */
+    private static final class Snapshot {
+
+        private final NavigableMap<String, int[]> postings;
+
+        private final Document[] documents;
+
+        Snapshot(NavigableMap<String, int[]> postings, Document[] documents) {
+            this.postings = postings;
+            this.documents = documents;
+        }
+
+        /**
+         * @return the owners with a word starting with the token, and for a digit sequence those with the least
+         * frequent of its telephone trigrams whose telephone contains it
+         */
+        Cursor cursor(String token) {
+            List<Cursor> cursors = new ArrayList<>();
+            for (int[] ids : this.postings.subMap(token, true, token + Character.MAX_VALUE, false).values()) {
+                cursors.add(new ArrayCursor(ids));
+            }
+            String trigram = rarestTrigram(token);
+            if (trigram != null) {
+                cursors.add(new FilterCursor(new ArrayCursor(this.postings.get(trigram)), id -> {
+                    Document document = id < this.documents.length ? this.documents[id] : null;
+                    return document != null && document.telephone != null && document.telephone.contains(token);
+                }));
+            }
+            return cursors.size() == 1 ? cursors.get(0) : new UnionCursor(cursors);
+        }
+
+        /**
+         * @return the key of the least frequent telephone trigram of a digit sequence, or {@code null} if the token
+         * is no such sequence or one of its trigrams is in no telephone at all
+         */
+        private String rarestTrigram(String token) {
+            if (!Document.isTelephoneFragment(token)) {
+                return null;
+            }
+            String rarest = null;
+            int fewest = Integer.MAX_VALUE;
+            for (int i = 0; i + 3 <= token.length(); i++) {
+                String key = TRIGRAM + token.substring(i, i + 3);
+                int[] ids = this.postings.get(key);
+                if (ids == null) {
+                    return null;
+                }
+                if (ids.length < fewest) {
+                    rarest = key;
+                    fewest = ids.length;
+                }
+            }
+            return rarest;
+        }
+
+    }
+
+    /**
+     * Walks owner ids in increasing order, skipping ahead on demand.
+     */
+    private interface Cursor {
+
+        int NONE = Integer.MAX_VALUE;
+
+        /**
+         * @return the current id, or {@link #NONE} past the last one
+         */
+        int id();
+
+        /**
+         * Move to the first id at or after the target, never backwards.
+         * @return the new current id, or {@link #NONE} if there is none
+         */
+        int advance(int target);
+
+        /**
+         * @return an upper bound of the number of ids, to lead the intersection with the cheapest cursor
+         */
+        long cost();
+
+    }
+
+    private static final class ArrayCursor implements Cursor {
+
+        private final int[] ids;
+
+        private int index;
+
+        ArrayCursor(int[] ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public int id() {
+            return this.index < this.ids.length ? this.ids[this.index] : NONE;
+        }
+
+        @Override
+        public int advance(int target) {
+            // gallop, then binary search the last step, so that skipping far costs a logarithm of the distance
+            int high = this.index;
+            int step = 1;
+            while (high < this.ids.length && this.ids[high] < target) {
+                this.index = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            int low = this.index;
+            high = Math.min(high, this.ids.length);
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (this.ids[middle] < target) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            this.index = low;
+            return id();
+        }
+
+        @Override
+        public long cost() {
+            return this.ids.length;
+        }
+
+    }
+
+    /**
+     * The ids of any of several cursors, only moving those behind the target.
+     */
+    private static final class UnionCursor implements Cursor {
+
+        private final PriorityQueue<Cursor> cursors = new PriorityQueue<>(Comparator.comparingInt(Cursor::id));
+
+        private final long cost;
+
+        UnionCursor(List<Cursor> cursors) {
+            long cost = 0;
+            for (Cursor cursor : cursors) {
+                cost += cursor.cost();
+                if (cursor.id() != NONE) {
+                    this.cursors.add(cursor);
+                }
+            }
+            this.cost = cost;
+        }
+
+        @Override
+        public int id() {
+            return this.cursors.isEmpty() ? NONE : this.cursors.peek().id();
+        }
+
+        @Override
+        public int advance(int target) {
+            while (!this.cursors.isEmpty() && this.cursors.peek().id() < target) {
+                Cursor cursor = this.cursors.poll();
+                if (cursor.advance(target) != NONE) {
+                    this.cursors.add(cursor);
+                }
+            }
+            return id();
+        }
+
+        @Override
+        public long cost() {
+            return this.cost;
+        }
+
+    }
+
+    /**
+     * The ids of a cursor that pass a check.
+     */
+    private static final class FilterCursor implements Cursor {
+
+        private final Cursor cursor;
+
+        private final IntPredicate filter;
+
+        FilterCursor(Cursor cursor, IntPredicate filter) {
+            this.cursor = cursor;
+            this.filter = filter;
+            advance(0);
+        }
+
+        @Override
+        public int id() {
+            return this.cursor.id();
+        }
+
+        @Override
+        public int advance(int target) {
+            int id = this.cursor.advance(target);
+            while (id != NONE && !this.filter.test(id)) {
+                id = this.cursor.advance(id + 1);
+            }
+            return id;
+        }
+
+        @Override
+        public long cost() {
+            return this.cursor.cost();
+        }
+
+    }
+
+    /**
+     * The indexed words of one owner and its pets, used to check candidates and to find the postings to update.
+     */
+    private static final class Document {
+
+        /**
+         * Stands for a deleted owner in the overlay, matching nothing.
+         */
+        static final Document DELETED = new Document(new String[0], null);
+
+        private final String[] terms;
+
+        private final String telephone;
+
+        Document(String[] terms, String telephone) {
+            this.terms = terms;
+            this.telephone = telephone;
+        }
+
+        Set<String> keys() {
+            return keys(Arrays.asList(this.terms), this.telephone);
+        }
+
+        static Set<String> keys(Iterable<String> terms, String telephone) {
+            Set<String> keys = new LinkedHashSet<>();
+            terms.forEach(keys::add);
+            if (telephone != null) {
+                for (int i = 0; i + 3 <= telephone.length(); i++) {
+                    keys.add(TRIGRAM + telephone.substring(i, i + 3));
+                }
+            }
+            return keys;
+        }
+
+        boolean matchesAll(List<String> tokens) {
+            for (String token : tokens) {
+                if (!matches(token)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean matches(String token) {
+            for (String term : this.terms) {
+                if (term.startsWith(token)) {
+                    return true;
+                }
+            }
+            return isTelephoneFragment(token) && this.telephone != null && this.telephone.contains(token);
+        }
+
+        static boolean isTelephoneFragment(String token) {
+            return token.length() >= 3 && token.chars().allMatch(c -> c >= '0' && c <= '9');
+        }
+
+    }
+
+    /**
+     * Growable, sorted postings of one key, while building the whole index in owner id order.
+     */
+    private static final class Postings {
+
+        private final String key;
+
+        private int[] ids = new int[4];
+
+        private int size;
+
+        Postings(String key) {
+            this.key = key;
+        }
+
+        void add(int id) {
+            if (this.size == this.ids.length) {
+                this.ids = Arrays.copyOf(this.ids, this.size * 2);
+            }
+            this.ids[this.size++] = id;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(this.ids, this.size);
+        }
+
+    }
+
+    /**
+     * Queues the owner of each {@link Owner} or {@link Pet} written for every index, after the surrounding
+     * transaction commits so that re-indexing sees the change.
+     */
+    public static class ChangeListener {
+
+        @PostPersist
+        @PostUpdate
+        @PostRemove
+        void changed(Object entity) {
+            Integer ownerId = entity instanceof Pet
+                ? (((Pet) entity).getOwner() == null ? null : ((Pet) entity).getOwner().getId())
+                : ((Owner) entity).getId();
+            if (ownerId == null) {
+                return;
+            }
+            AfterCommit.run(() -> queues.forEach(queue -> queue.add(ownerId)));
+        }
+
+    }
+
+}
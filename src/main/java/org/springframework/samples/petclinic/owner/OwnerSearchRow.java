@@ -0,0 +1,73 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+/**
+ * One owner / pet row of the searchable owner fields, built by a JPQL constructor expression. Pet columns are
+ * {@code null} for owners without pets.
+ *
+ * @see OwnerSearchIndex
+ */
+public class OwnerSearchRow {
+
+    private final Integer ownerId;
+    private final String firstName;
+    private final String lastName;
+    private final String city;
+    private final String telephone;
+    private final String petName;
+    private final String petType;
+
+    public OwnerSearchRow(Integer ownerId, String firstName, String lastName, String city, String telephone,
+                          String petName, String petType) {
+        this.ownerId = ownerId;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.city = city;
+        this.telephone = telephone;
+        this.petName = petName;
+        this.petType = petType;
+    }
+
+    public Integer getOwnerId() {
+        return this.ownerId;
+    }
+
+    public String getFirstName() {
+        return this.firstName;
+    }
+
+    public String getLastName() {
+        return this.lastName;
+    }
+
+    public String getCity() {
+        return this.city;
+    }
+
+    public String getTelephone() {
+        return this.telephone;
+    }
+
+    public String getPetName() {
+        return this.petName;
+    }
+
+    public String getPetType() {
+        return this.petType;
+    }
+
+}
@@ -0,0 +1,389 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.samples.petclinic.model.AfterCommit;
+import org.springframework.samples.petclinic.system.PrimaryReads;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Suggests owners by the beginning of any word of their first or last name, entirely from memory.
+ * <p>
+ * The names are held in an immutable radix trie whose leaves share one array of owner ids in key order, so every
+ * prefix resolves to a contiguous range of ids. Owners written after the trie was built are kept in a small overlay
+ * that takes precedence over it; the trie is rebuilt on a background thread at startup and whenever the overlay
+ * grows past {@value #REBUILD_THRESHOLD} owners.
+ */
+@Component
+public class OwnerTypeahead {
+
+    private static final Log logger = LogFactory.getLog(OwnerTypeahead.class);
+
+    private static final int REBUILD_THRESHOLD = 1000;
+
+    private static final Comparator<OwnerSuggestion> BY_NAME = Comparator
+        .comparing(OwnerSuggestion::getLastName, String.CASE_INSENSITIVE_ORDER)
+        .thenComparing(OwnerSuggestion::getFirstName, String.CASE_INSENSITIVE_ORDER)
+        .thenComparing(OwnerSuggestion::getId);
+
+    private static final Queue<OwnerSuggestion> changed = new ConcurrentLinkedQueue<>();
+
+    private final OwnerRepository owners;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "owner-typeahead-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Map<Integer, Update> updates = new ConcurrentHashMap<>();
+
+    private volatile Snapshot snapshot = new Snapshot(new RadixTrie(new String[0], new int[0]),
+        new OwnerSuggestion[0]);
+
+    public OwnerTypeahead(OwnerRepository owners, PlatformTransactionManager transactionManager) {
+        this.owners = owners;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Suggest the owners with a first or last name word starting with each word of the query.
+     * @param query what the user typed so far, e.g. {@code "dav"} or {@code "george fr"}
+     * @param limit the maximum number of suggestions
+     * @return the matching owners, ordered by last and first name
+     */
+    public List<OwnerSuggestion> suggest(String query, int limit) {
+        applyChanges();
+        List<String> tokens = OwnerSearchIndex.tokenize(query);
+        if (tokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Snapshot snapshot = this.snapshot;
+        RadixTrie.Node narrowest = null;
+        for (String token : tokens) {
+            RadixTrie.Node node = snapshot.trie.find(token);
+            if (node == null) {
+                narrowest = null;
+                break;
+            }
+            if (narrowest == null || node.size() < narrowest.size()) {
+                narrowest = node;
+            }
+        }
+        List<OwnerSuggestion> suggestions = new ArrayList<>();
+        Set<Integer> seen = new HashSet<>();
+        if (narrowest != null) {
+            for (int i = narrowest.from; i < narrowest.to && suggestions.size() < limit; i++) {
+                int id = snapshot.trie.ids[i];
+                if (!this.updates.containsKey(id) && seen.add(id) && matches(snapshot.byId[id], tokens)) {
+                    suggestions.add(snapshot.byId[id]);
+                }
+            }
+        }
+        for (Update update : this.updates.values()) {
+            if (update.suggestion.getLastName() != null && matches(update.suggestion, tokens)) {
+                suggestions.add(update.suggestion);
+            }
+        }
+        suggestions.sort(BY_NAME);
+        return suggestions.size() > limit ? new ArrayList<>(suggestions.subList(0, limit)) : suggestions;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleRebuild() {
+        if (this.rebuildScheduled.compareAndSet(false, true)) {
+            this.rebuilder.execute(() -> {
+                this.rebuildScheduled.set(false);
+                try {
+                    rebuild();
+                } catch (RuntimeException ex) {
+                    logger.warn("Could not rebuild the owner typeahead", ex);
+                }
+            });
+        }
+    }
+
+    /**
+     * Read all owner names from the data store and swap in a new trie. Owners written before the read started are
+     * part of the new trie and leave the overlay.
+     */
+    public void rebuild() {
+        applyChanges();
+        long start = this.sequence.get();
+        List<String> keys = new ArrayList<>();
+        List<OwnerSuggestion> suggestions = new ArrayList<>();
+        Map<String, String> names = new HashMap<>();
+        PrimaryReads.call(() -> this.transactionTemplate.execute(status -> {
+            try (Stream<OwnerSuggestion> rows = this.owners.streamAllSuggestions()) {
+                rows.forEach(row -> {
+                    OwnerSuggestion suggestion = new OwnerSuggestion(row.getId(),
+                        share(names, row.getFirstName()), share(names, row.getLastName()));
+                    for (String key : keys(suggestion)) {
+                        keys.add(share(names, key));
+                        suggestions.add(suggestion);
+                    }
+                });
+            }
+            return null;
+        }));
+        Integer[] order = new Integer[keys.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing((Integer i) -> keys.get(i))
+            .thenComparing(i -> suggestions.get(i).getId()));
+        String[] sortedKeys = new String[order.length];
+        int[] ids = new int[order.length];
+        int maxId = -1;
+        for (int i = 0; i < order.length; i++) {
+            sortedKeys[i] = keys.get(order[i]);
+            ids[i] = suggestions.get(order[i]).getId();
+            maxId = Math.max(maxId, ids[i]);
+        }
+        OwnerSuggestion[] byId = new OwnerSuggestion[maxId + 1];
+        for (OwnerSuggestion suggestion : suggestions) {
+            byId[suggestion.getId()] = suggestion;
+        }
+        this.snapshot = new Snapshot(new RadixTrie(sortedKeys, ids), byId);
+        this.updates.values().removeIf(update -> update.sequence <= start);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.rebuilder.shutdownNow();
+    }
+
+    private void applyChanges() {
+        for (OwnerSuggestion suggestion = changed.poll(); suggestion != null; suggestion = changed.poll()) {
+            this.updates.put(suggestion.getId(), new Update(suggestion, this.sequence.incrementAndGet()));
+        }
+        if (this.updates.size() > REBUILD_THRESHOLD) {
+            scheduleRebuild();
+        }
+    }
+
+    private static Set<String> keys(OwnerSuggestion suggestion) {
+        Set<String> keys = new HashSet<>(OwnerSearchIndex.tokenize(suggestion.getFirstName()));
+        keys.addAll(OwnerSearchIndex.tokenize(suggestion.getLastName()));
+        return keys;
+    }
+
+    private static String share(Map<String, String> names, String name) {
+        return name == null ? null : names.computeIfAbsent(name, n -> n);
+    }
+
+    private static boolean matches(OwnerSuggestion suggestion, List<String> tokens) {
+        for (String token : tokens) {
+            if (!hasWordStartingWith(suggestion.getFirstName(), token)
+                && !hasWordStartingWith(suggestion.getLastName(), token)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasWordStartingWith(String text, String prefix) {
+        if (text == null) {
+            return false;
+        }
+        for (int i = 0; i + prefix.length() <= text.length(); i++) {
+            boolean wordStart = i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1));
+            if (wordStart && text.regionMatches(true, i, prefix, 0, prefix.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Snapshot {
+
+        private final RadixTrie trie;
+
+        private final OwnerSuggestion[] byId;
+
+        Snapshot(RadixTrie trie, OwnerSuggestion[] byId) {
+            this.trie = trie;
+            this.byId = byId;
+        }
+
+    }
+
+    private static final class Update {
+
+        private final OwnerSuggestion suggestion;
+
+        private final long sequence;
+
+        Update(OwnerSuggestion suggestion, long sequence) {
+            this.suggestion = suggestion;
+            this.sequence = sequence;
+        }
+
+    }
+
+    /**
+     * Immutable radix trie over sorted keys. Each node covers the range of keys, and of their ids, that start with
+     * the labels on its path, and edges with a single continuation are collapsed into one multi-character label.
+     */
+    static final class RadixTrie {
+
+        private final int[] ids;
+
+        private final Node root;
+
+        RadixTrie(String[] keys, int[] ids) {
+            this.ids = ids;
+            this.root = build(keys, 0, keys.length, 0, "");
+        }
+
+        /**
+         * @return the node covering all keys that start with the prefix, or {@code null} if there are none
+         */
+        Node find(String prefix) {
+            Node node = this.root;
+            int depth = 0;
+            while (depth < prefix.length()) {
+                int index = Arrays.binarySearch(node.firstChars, prefix.charAt(depth));
+                if (index < 0) {
+                    return null;
+                }
+                Node child = node.children[index];
+                int length = Math.min(child.label.length(), prefix.length() - depth);
+                if (!prefix.regionMatches(depth, child.label, 0, length)) {
+                    return null;
+                }
+                depth += child.label.length();
+                node = child;
+            }
+            return node;
+        }
+
+        private static Node build(String[] keys, int from, int to, int depth, String label) {
+            int start = from;
+            while (start < to && keys[start].length() == depth) {
+                start++;
+            }
+            List<Node> children = new ArrayList<>();
+            for (int i = start; i < to; ) {
+                char c = keys[i].charAt(depth);
+                int j = i + 1;
+                while (j < to && keys[j].charAt(depth) == c) {
+                    j++;
+                }
+                int end = depth + 1;
+                String first = keys[i];
+                String last = keys[j - 1];
+                while (end < first.length() && end < last.length() && first.charAt(end) == last.charAt(end)) {
+                    end++;
+                }
+                children.add(build(keys, i, j, end, first.substring(depth, end)));
+                i = j;
+            }
+            char[] firstChars = new char[children.size()];
+            for (int i = 0; i < firstChars.length; i++) {
+                firstChars[i] = children.get(i).label.charAt(0);
+            }
+            return new Node(label, from, to, firstChars, children.toArray(new Node[0]));
+        }
+
+        static final class Node {
+
+            private final String label;
+
+            private final int from;
+
+            private final int to;
+
+            private final char[] firstChars;
+
+            private final Node[] children;
+
+            Node(String label, int from, int to, char[] firstChars, Node[] children) {
+                this.label = label;
+                this.from = from;
+                this.to = to;
+                this.firstChars = firstChars;
+                this.children = children;
+            }
+
+            int size() {
+                return this.to - this.from;
+            }
+
+        }
+
+    }
+
+    /**
+     * Queues the name of each {@link Owner} written, after the surrounding transaction commits, so that the next
+     * suggestion sees it without querying the data store.
+     */
+    public static class ChangeListener {
+
+        @PostPersist
+        @PostUpdate
+        void saved(Owner owner) {
+            queue(new OwnerSuggestion(owner.getId(), owner.getFirstName(), owner.getLastName()));
+        }
+
+        @PostRemove
+        void removed(Owner owner) {
+            queue(new OwnerSuggestion(owner.getId(), null, null));
+        }
+
+        private void queue(OwnerSuggestion suggestion) {
+            AfterCommit.run(() -> changed.add(suggestion));
+        }
+
+    }
+
+}
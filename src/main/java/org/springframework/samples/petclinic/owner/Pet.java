@@ -16,30 +16,37 @@
 package org.springframework.samples.petclinic.owner;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.Comparator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
+import javax.persistence.Cacheable;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
+import javax.persistence.OrderBy;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
-import org.springframework.beans.support.MutableSortDefinition;
-import org.springframework.beans.support.PropertyComparator;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.samples.petclinic.model.NamedEntity;
+import org.springframework.samples.petclinic.model.SortedView;
 import org.springframework.samples.petclinic.visit.Visit;
 
 /**
  * Simple business object representing a pet.
+ * <p>
+ * The type and the visits are loaded lazily; each repository query decides what it fetches. The visits of up to 50
+ * pets of the same session are initialized together, in one query.
  *
  * @author Ken Krebs
  * @author Juergen Hoeller
@@ -47,13 +54,26 @@ import org.springframework.samples.petclinic.visit.Visit;
  */
 @Entity
 @Table(name = "pets")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "pet")
+@EntityListeners(OwnerSearchIndex.ChangeListener.class)
 public class Pet extends NamedEntity {
 
+    private static final Comparator<Visit> BY_DATE_DESCENDING = Comparator.comparing(Visit::getDate,
+        Comparator.nullsFirst(Comparator.<LocalDate>reverseOrder()));
+
     @Column(name = "birth_date")
     @DateTimeFormat(pattern = "yyyy-MM-dd")
     private LocalDate birthDate;
 
-    @ManyToOne
+    /**
+     * Incremented by every update of the pet, which also changes the entity tag of its owner's page.
+     */
+    @Version
+    @Column(name = "version")
+    private Integer version;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "type_id")
     private PetType type;
 
@@ -61,9 +81,14 @@ public class Pet extends NamedEntity {
     @JoinColumn(name = "owner_id")
     private Owner owner;
 
-    @OneToMany(cascade = CascadeType.ALL, mappedBy = "petId", fetch = FetchType.EAGER)
+    @OneToMany(cascade = CascadeType.ALL, mappedBy = "petId")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "pet-visits")
+    @BatchSize(size = 50)
+    @OrderBy("date DESC")
     private Set<Visit> visits = new LinkedHashSet<>();
 
+    private transient SortedView<Visit> sortedVisits;
+
     public void setBirthDate(LocalDate birthDate) {
         this.birthDate = birthDate;
     }
@@ -80,6 +105,14 @@ public class Pet extends NamedEntity {
         this.type = type;
     }
 
+    public Integer getVersion() {
+        return this.version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
     public Owner getOwner() {
         return this.owner;
     }
@@ -90,24 +123,33 @@ public class Pet extends NamedEntity {
 
     protected Set<Visit> getVisitsInternal() {
         if (this.visits == null) {
-            this.visits = new HashSet<>();
+            this.visits = new LinkedHashSet<>();
         }
         return this.visits;
     }
 
     protected void setVisitsInternal(Set<Visit> visits) {
         this.visits = visits;
+        if (this.sortedVisits != null) {
+            this.sortedVisits.invalidate();
+        }
     }
 
+    /**
+     * @return the visits, most recent first, the same unmodifiable list on every call until a visit is added
+     */
     public List<Visit> getVisits() {
-        List<Visit> sortedVisits = new ArrayList<>(getVisitsInternal());
-        PropertyComparator.sort(sortedVisits,
-                new MutableSortDefinition("date", false, false));
-        return Collections.unmodifiableList(sortedVisits);
+        if (this.sortedVisits == null) {
+            this.sortedVisits = new SortedView<>(BY_DATE_DESCENDING);
+        }
+        return this.sortedVisits.of(getVisitsInternal());
     }
 
     public void addVisit(Visit visit) {
         getVisitsInternal().add(visit);
+        if (this.sortedVisits != null) {
+            this.sortedVisits.invalidate();
+        }
         visit.setPetId(this.getId());
     }
 
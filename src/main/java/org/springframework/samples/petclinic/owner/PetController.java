@@ -15,6 +15,7 @@
  */
 package org.springframework.samples.petclinic.owner;
 
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.ModelMap;
 import org.springframework.util.StringUtils;
@@ -37,15 +38,17 @@ class PetController {
     private static final String VIEWS_PETS_CREATE_OR_UPDATE_FORM = "pets/createOrUpdatePetForm";
     private final PetRepository pets;
     private final OwnerRepository owners;
+    private final PetTypeRegistry types;
 
-    public PetController(PetRepository pets, OwnerRepository owners) {
+    public PetController(PetRepository pets, OwnerRepository owners, PetTypeRegistry types) {
         this.pets = pets;
         this.owners = owners;
+        this.types = types;
     }
 
     @ModelAttribute("types")
     public Collection<PetType> populatePetTypes() {
-        return this.pets.findPetTypes();
+        return this.types.findAll();
     }
 
     @ModelAttribute("owner")
@@ -93,17 +96,37 @@ class PetController {
         return VIEWS_PETS_CREATE_OR_UPDATE_FORM;
     }
 
+    /**
+     * Save the posted pet if it was edited from the version that is still current, or show the conflict the same way
+     * {@link OwnerController#processUpdateOwnerForm} does.
+     */
     @PostMapping("/pets/{petId}/edit")
-    public String processUpdateForm(@Valid Pet pet, BindingResult result, Owner owner, ModelMap model) {
+    public String processUpdateForm(@Valid Pet pet, BindingResult result, Owner owner, @PathVariable("petId") int petId,
+                                    ModelMap model) {
         if (result.hasErrors()) {
             pet.setOwner(owner);
             model.put("pet", pet);
             return VIEWS_PETS_CREATE_OR_UPDATE_FORM;
-        } else {
-            owner.addPet(pet);
-            this.pets.save(pet);
-            return "redirect:/owners/{ownerId}";
         }
+        if (pet.getVersion() != null) {
+            try {
+                owner.addPet(pet);
+                this.pets.save(pet);
+                return "redirect:/owners/{ownerId}";
+            } catch (OptimisticLockingFailureException ex) {
+                // fall through to the conflict
+            }
+        }
+        Pet saved = this.pets.findById(petId);
+        pet.setId(petId);
+        pet.setVersion(saved.getVersion());
+        pet.setOwner(owner);
+        model.put("pet", pet);
+        model.put(EditConflict.MODEL_ATTRIBUTE, new EditConflict()
+            .field("Name", saved.getName(), pet.getName())
+            .field("Birth Date", saved.getBirthDate(), pet.getBirthDate())
+            .field("Type", saved.getType(), pet.getType()));
+        return VIEWS_PETS_CREATE_OR_UPDATE_FORM;
     }
 
 }
@@ -15,10 +15,14 @@
  */
 package org.springframework.samples.petclinic.owner;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
@@ -41,13 +45,23 @@ public interface PetRepository extends Repository<Pet, Integer> {
     List<PetType> findPetTypes();
 
     /**
-     * Retrieve a {@link Pet} from the data store by id.
+     * Retrieve a {@link Pet} from the data store by id, together with its type and owner.
      * @param id the id to search for
      * @return the {@link Pet} if found
      */
+    @EntityGraph(attributePaths = {"type", "owner"})
     @Transactional(readOnly = true)
     Pet findById(Integer id);
 
+    /**
+     * Retrieve which of the given ids belong to a {@link Pet} in the data store, in a single query.
+     * @param ids the ids to check
+     * @return the subset of the ids that exist
+     */
+    @Query("SELECT pet.id FROM Pet pet WHERE pet.id IN :ids")
+    @Transactional(readOnly = true)
+    Set<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
+
     /**
      * Save a {@link Pet} to the data store, either inserting or updating it.
      * @param pet the {@link Pet} to save
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.samples.petclinic.model.AfterCommit;
+import org.springframework.samples.petclinic.system.PrimaryReads;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory registry of all {@link PetType}s, so that binding and rendering pet forms never query the database.
+ * <p>
+ * The types are loaded once at startup and indexed by name and by id. Any insert, update or delete of a
+ * {@link PetType} bumps a change counter once its transaction commits, and the next lookup reloads the registry.
+ *
+ * @see PetTypeFormatter
+ */
+@Component
+public class PetTypeRegistry {
+
+    private static final AtomicLong changes = new AtomicLong();
+
+    private final PetRepository pets;
+
+    private volatile Snapshot snapshot;
+
+    public PetTypeRegistry(PetRepository pets) {
+        this.pets = pets;
+    }
+
+    /**
+     * @return all {@link PetType}s, ordered by name
+     */
+    public List<PetType> findAll() {
+        return snapshot().types;
+    }
+
+    /**
+     * @return the {@link PetType} with the given name, or {@code null} if there is none
+     */
+    public PetType findByName(String name) {
+        return snapshot().byName.get(name);
+    }
+
+    /**
+     * @return the {@link PetType} with the given id, or {@code null} if there is none
+     */
+    public PetType findById(Integer id) {
+        return snapshot().byId.get(id);
+    }
+
+    /**
+     * Reload all {@link PetType}s from the data store and swap in the new indexes.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void refresh() {
+        long version = changes.get();
+        this.snapshot = new Snapshot(version, PrimaryReads.call(this.pets::findPetTypes));
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = this.snapshot;
+        if (current == null || current.version != changes.get()) {
+            refresh();
+            current = this.snapshot;
+        }
+        return current;
+    }
+
+    private static final class Snapshot {
+
+        private final long version;
+
+        private final List<PetType> types;
+
+        private final Map<String, PetType> byName = new HashMap<>();
+
+        private final Map<Integer, PetType> byId = new HashMap<>();
+
+        Snapshot(long version, List<PetType> types) {
+            this.version = version;
+            this.types = Collections.unmodifiableList(types);
+            for (PetType type : types) {
+                this.byName.putIfAbsent(type.getName(), type);
+                this.byId.put(type.getId(), type);
+            }
+        }
+
+    }
+
+    /**
+     * Marks the registry stale whenever a {@link PetType} is written, after the surrounding transaction commits so
+     * that the reload sees the change.
+     */
+    public static class ChangeListener {
+
+        @PostPersist
+        @PostUpdate
+        @PostRemove
+        void changed(PetType type) {
+            AfterCommit.run(changes::incrementAndGet);
+        }
+
+    }
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+/**
+ * Accepts the end-of-day visit feeds of the front-desk systems, as a JSON array or as NDJSON (one visit per line):
+ * <pre>
+ * {"petId": 7, "date": "2013-01-01", "description": "rabies shot"}
+ * </pre>
+ */
+@Controller
+class VisitBulkController {
+
+    private final VisitBulkImporter importer;
+
+    public VisitBulkController(VisitBulkImporter importer) {
+        this.importer = importer;
+    }
+
+    @PostMapping(value = "/visits/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson"})
+    public @ResponseBody VisitImportResult importVisits(InputStream body) throws IOException {
+        return this.importer.importVisits(body);
+    }
+
+}
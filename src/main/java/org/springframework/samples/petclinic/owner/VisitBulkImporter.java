@@ -0,0 +1,158 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.samples.petclinic.visit.VisitRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Reads visits from a JSON array or an NDJSON stream and inserts the valid ones in chunks.
+ * <p>
+ * The input is parsed incrementally. For each chunk of {@link #CHUNK_SIZE} visits the pet ids are resolved in one
+ * query and the visits are inserted in one transaction, which Hibernate sends as JDBC batches (see
+ * {@code hibernate.jdbc.batch_size}). The persistence context is cleared after each chunk so memory stays bounded
+ * whatever the size of the input.
+ */
+@Component
+class VisitBulkImporter {
+
+    static final int CHUNK_SIZE = 500;
+
+    private final PetRepository pets;
+
+    private final VisitRepository visits;
+
+    private final EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final Validator validator;
+
+    public VisitBulkImporter(PetRepository pets, VisitRepository visits, EntityManager entityManager,
+                             PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                             Validator validator) {
+        this.pets = pets;
+        this.visits = visits;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+    }
+
+    public VisitImportResult importVisits(InputStream in) throws IOException {
+        VisitImportResult result = new VisitImportResult();
+        List<Visit> chunk = new ArrayList<>(CHUNK_SIZE);
+        List<Integer> indexes = new ArrayList<>(CHUNK_SIZE);
+        try (JsonParser parser = this.objectMapper.getFactory().createParser(in)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                token = parser.nextToken();
+            }
+            while (token != null && token != JsonToken.END_ARRAY) {
+                int index = result.getReceived();
+                result.received();
+                JsonNode node = parser.readValueAsTree();
+                Visit visit = read(node, index, result);
+                if (visit != null) {
+                    chunk.add(visit);
+                    indexes.add(index);
+                    if (chunk.size() == CHUNK_SIZE) {
+                        insert(chunk, indexes, result);
+                    }
+                }
+                token = parser.nextToken();
+            }
+        }
+        insert(chunk, indexes, result);
+        return result;
+    }
+
+    private Visit read(JsonNode node, int index, VisitImportResult result) {
+        Visit visit;
+        try {
+            visit = this.objectMapper.treeToValue(node, Visit.class);
+        } catch (JsonProcessingException ex) {
+            result.reject(index, "unreadable visit: " + ex.getOriginalMessage());
+            return null;
+        }
+        visit.setId(null);
+        if (visit.getPetId() == null) {
+            result.reject(index, "petId is required");
+            return null;
+        }
+        if (visit.getDate() == null) {
+            result.reject(index, "date is required");
+            return null;
+        }
+        Set<ConstraintViolation<Visit>> violations = this.validator.validate(visit);
+        if (!violations.isEmpty()) {
+            result.reject(index, violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .collect(Collectors.joining(", ")));
+            return null;
+        }
+        return visit;
+    }
+
+    private void insert(List<Visit> chunk, List<Integer> indexes, VisitImportResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        Integer inserted = this.transactionTemplate.execute(status -> {
+            Set<Integer> petIds = this.pets.findExistingIds(
+                chunk.stream().map(Visit::getPetId).collect(Collectors.toSet()));
+            int count = 0;
+            for (int i = 0; i < chunk.size(); i++) {
+                Visit visit = chunk.get(i);
+                if (petIds.contains(visit.getPetId())) {
+                    this.visits.save(visit);
+                    count++;
+                } else {
+                    result.reject(indexes.get(i), "pet " + visit.getPetId() + " not found");
+                }
+            }
+            this.entityManager.flush();
+            this.entityManager.clear();
+            return count;
+        });
+        result.inserted(inserted);
+        chunk.clear();
+        indexes.clear();
+    }
+
+}
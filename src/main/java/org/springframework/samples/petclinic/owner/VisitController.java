@@ -15,6 +15,11 @@
  */
 package org.springframework.samples.petclinic.owner;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.samples.petclinic.system.ReadYourWritesFilter;
 import org.springframework.samples.petclinic.visit.Visit;
 import org.springframework.samples.petclinic.visit.VisitRepository;
 import org.springframework.stereotype.Controller;
@@ -37,11 +42,17 @@ class VisitController {
 
     private final VisitRepository visits;
     private final PetRepository pets;
+    private final int pageSize;
+    private final VisitWriteBehind writeBehind;
 
 
-    public VisitController(VisitRepository visits, PetRepository pets) {
+    public VisitController(VisitRepository visits, PetRepository pets,
+                           @Value("${petclinic.visits.page-size:20}") int pageSize,
+                           ObjectProvider<VisitWriteBehind> writeBehind) {
         this.visits = visits;
         this.pets = pets;
+        this.pageSize = pageSize;
+        this.writeBehind = writeBehind.getIfAvailable();
     }
 
     @InitBinder
@@ -55,6 +66,7 @@ class VisitController {
      * - Make sure we always have fresh data
      * - Since we do not use the session scope, make sure that Pet object always has an id
      * (Even though id is not part of the form fields)
+     * The visit is not added to the pet, which would load the pet's whole visit history.
      *
      * @param petId
      * @return Pet
@@ -64,7 +76,7 @@ class VisitController {
         Pet pet = this.pets.findById(petId);
         model.put("pet", pet);
         Visit visit = new Visit();
-        pet.addVisit(visit);
+        visit.setPetId(pet.getId());
         return visit;
     }
 
@@ -74,13 +86,33 @@ class VisitController {
         return "pets/createOrUpdateVisitForm";
     }
 
+    /**
+     * Show one page of the visits of a pet, most recent first, including those not written yet.
+     */
+    @GetMapping("/owners/{ownerId}/pets/{petId}/visits")
+    public String showVisitHistory(@PathVariable("petId") int petId,
+                                   @RequestParam(name = "page", defaultValue = "0") int page,
+                                   Map<String, Object> model) {
+        Page<Visit> visits = this.visits.findPageByPetId(petId, PageRequest.of(Math.max(page, 0), this.pageSize));
+        model.put("visits", this.writeBehind != null ? this.writeBehind.withPending(petId, visits) : visits);
+        return "pets/visitHistory";
+    }
+
+    /**
+     * Save a new visit, or queue it to be written behind if that is enabled and the queue has room.
+     */
     // Spring MVC calls method loadPetWithVisit(...) before processNewVisitForm is called
     @PostMapping("/owners/{ownerId}/pets/{petId}/visits/new")
-    public String processNewVisitForm(@Valid Visit visit, BindingResult result) {
+    public String processNewVisitForm(@Valid Visit visit, BindingResult result,
+                                      @ModelAttribute(name = "pet", binding = false) Pet pet) {
         if (result.hasErrors()) {
             return "pets/createOrUpdateVisitForm";
         } else {
-            this.visits.save(visit);
+            if (this.writeBehind != null && this.writeBehind.offer(visit, pet.getOwner().getId())) {
+                ReadYourWritesFilter.written();
+            } else {
+                this.visits.save(visit);
+            }
             return "redirect:/owners/{ownerId}";
         }
     }
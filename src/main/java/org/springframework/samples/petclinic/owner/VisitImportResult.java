@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk visit import: how many visits were read and inserted, and why the others were rejected. Only
+ * the first {@link #MAX_REJECTIONS} rejections are kept so that a bad feed cannot grow the result without bound.
+ */
+public class VisitImportResult {
+
+    static final int MAX_REJECTIONS = 100;
+
+    private int received;
+
+    private int inserted;
+
+    private int rejected;
+
+    private final List<Rejection> rejections = new ArrayList<>();
+
+    void received() {
+        this.received++;
+    }
+
+    void inserted(int count) {
+        this.inserted += count;
+    }
+
+    void reject(int index, String reason) {
+        this.rejected++;
+        if (this.rejections.size() < MAX_REJECTIONS) {
+            this.rejections.add(new Rejection(index, reason));
+        }
+    }
+
+    public int getReceived() {
+        return this.received;
+    }
+
+    public int getInserted() {
+        return this.inserted;
+    }
+
+    public int getRejected() {
+        return this.rejected;
+    }
+
+    public List<Rejection> getRejections() {
+        return this.rejections;
+    }
+
+    /**
+     * A visit that was not inserted, identified by its zero-based position in the request.
+     */
+    public static class Rejection {
+
+        private final int index;
+
+        private final String reason;
+
+        Rejection(int index, String reason) {
+            this.index = index;
+            this.reason = reason;
+        }
+
+        public int getIndex() {
+            return this.index;
+        }
+
+        public String getReason() {
+            return this.reason;
+        }
+
+    }
+
+}
@@ -0,0 +1,448 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import org.springframework.samples.petclinic.visit.Visit;
+
+/**
+ * A bounded, persistent queue of visits: a file mapped in memory as a ring of records, appended to by any thread and
+ * taken in order by a single consumer, which releases them once they are safely stored elsewhere.
+ * <p>
+ * A record is the length and CRC32 of its content, then the content: sequence number, owner, pet, date and
+ * description. A record that does not fit before the end of the ring starts over at its beginning. The header holds
+ * where the oldest unreleased record starts, so reopening the file after a crash finds every record that was
+ * appended and not released, up to the first torn or stale one. The header is not forced to disk on release: a
+ * record released just before a power loss comes back, and the consumer must recognize it by its sequence number.
+ * <p>
+ * Offsets grow forever and are taken modulo the capacity, so that the space in use is their difference.
+ */
+final class VisitLog implements Closeable {
+
+    static final int HEADER_SIZE = 64;
+
+    private static final int MAGIC = 0x50435657;
+
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private static final int PAYLOAD_HEADER_SIZE = 28;
+
+    private static final int WRAP = -1;
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer buffer;
+
+    private final int capacity;
+
+    private final boolean fsync;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notFull = this.lock.newCondition();
+
+    private final Condition notEmpty = this.lock.newCondition();
+
+    private final ReentrantLock forceLock = new ReentrantLock();
+
+    private long releasedOffset;
+
+    private long releasedSequence;
+
+    private long takenOffset;
+
+    private long writeOffset;
+
+    private long nextSequence;
+
+    private volatile long appendedSequence;
+
+    private volatile long forcedSequence;
+
+    /**
+     * Open the log in the given file, creating it if needed, and recover the records it holds.
+     * @param file the file of the log
+     * @param capacity the size of the ring in bytes; an existing log keeps the capacity it was created with
+     * @param fsync whether {@link #append} returns only once the record is forced to disk
+     */
+    VisitLog(Path file, int capacity, boolean fsync) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        boolean existing = this.channel.size() >= HEADER_SIZE && this.channel.read(header, 0) == HEADER_SIZE
+            && header.getInt(0) == MAGIC;
+        this.capacity = existing ? header.getInt(4) : capacity;
+        this.fsync = fsync;
+        this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) this.capacity);
+        if (existing) {
+            recover(header.getLong(8), header.getLong(16));
+        } else {
+            this.nextSequence = 1;
+            this.releasedSequence = 1;
+            this.buffer.putInt(0, MAGIC);
+            this.buffer.putInt(4, this.capacity);
+            writeHeader();
+            this.buffer.force();
+        }
+        this.appendedSequence = this.nextSequence - 1;
+        this.forcedSequence = this.appendedSequence;
+    }
+
+    /**
+     * Append a visit, waiting for space if the log is full.
+     * @param ownerId the owner of the pet of the visit
+     * @param visit the visit, already validated
+     * @param timeout how long to wait for space
+     * @param unit the unit of the timeout
+     * @return the appended record, or {@code null} if there was no space in time
+     */
+    Entry append(int ownerId, Visit visit, long timeout, TimeUnit unit) throws InterruptedException {
+        byte[] description = visit.getDescription().getBytes(StandardCharsets.UTF_8);
+        int size = RECORD_HEADER_SIZE + PAYLOAD_HEADER_SIZE + description.length;
+        if (size > this.capacity / 2) {
+            throw new IllegalArgumentException("A visit of " + size + " bytes does not fit in a log of "
+                + this.capacity + " bytes");
+        }
+        long nanos = unit.toNanos(timeout);
+        Entry entry;
+        this.lock.lockInterruptibly();
+        try {
+            long start;
+            while ((start = placement(this.writeOffset, size)) + size - this.releasedOffset > this.capacity) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = this.notFull.awaitNanos(nanos);
+            }
+            if (start != this.writeOffset && remaining(this.writeOffset) >= RECORD_HEADER_SIZE) {
+                this.buffer.putInt(position(this.writeOffset), WRAP);
+            }
+            entry = new Entry(this.nextSequence, ownerId, visit.getPetId(), visit.getDate(),
+                visit.getDescription(), start + size);
+            ByteBuffer payload = ByteBuffer.allocate(size - RECORD_HEADER_SIZE);
+            payload.putLong(entry.sequence).putInt(ownerId).putInt(entry.petId)
+                .putLong(entry.date != null ? entry.date.toEpochDay() : NO_DATE)
+                .putInt(description.length).put(description);
+            ByteBuffer record = this.buffer.duplicate();
+            record.position(position(start));
+            record.putInt(payload.capacity()).putInt(crc(payload.array())).put(payload.array());
+            this.writeOffset = entry.end;
+            this.nextSequence++;
+            this.appendedSequence = entry.sequence;
+            this.notEmpty.signal();
+        } finally {
+            this.lock.unlock();
+        }
+        if (this.fsync) {
+            force(entry.sequence);
+        }
+        return entry;
+    }
+
+    /**
+     * Take the next records in order, waiting for one if there is none. Taken records are not handed out again,
+     * but stay in the log until they are {@link #release released}.
+     * @param max the most records to take
+     * @param timeout how long to wait for a record
+     * @param unit the unit of the timeout
+     * @return the records taken, empty if none was appended in time
+     */
+    List<Entry> take(int max, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        this.lock.lockInterruptibly();
+        try {
+            while (this.takenOffset == this.writeOffset) {
+                if (nanos <= 0) {
+                    return Collections.emptyList();
+                }
+                nanos = this.notEmpty.awaitNanos(nanos);
+            }
+            List<Entry> entries = new ArrayList<>();
+            while (entries.size() < max && this.takenOffset < this.writeOffset) {
+                Entry entry = readAt(this.takenOffset);
+                entries.add(entry);
+                this.takenOffset = entry.end;
+            }
+            return entries;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Free the space of the given record and all the records before it.
+     * @param last the last record to release
+     */
+    void release(Entry last) {
+        this.lock.lock();
+        try {
+            if (last.end > this.releasedOffset) {
+                this.releasedOffset = last.end;
+                this.releasedSequence = last.sequence + 1;
+                this.takenOffset = Math.max(this.takenOffset, this.releasedOffset);
+                writeHeader();
+                this.notFull.signalAll();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Release the records up to the given sequence number, and make sure later records are numbered after it, e.g.
+     * when those records are known to be stored already.
+     * @param sequence the last sequence number to release
+     */
+    void releaseThrough(long sequence) {
+        this.lock.lock();
+        try {
+            while (this.releasedOffset < this.writeOffset) {
+                Entry entry = readAt(this.releasedOffset);
+                if (entry.sequence > sequence) {
+                    break;
+                }
+                this.releasedOffset = entry.end;
+                this.releasedSequence = entry.sequence + 1;
+            }
+            this.takenOffset = Math.max(this.takenOffset, this.releasedOffset);
+            if (this.releasedOffset == this.writeOffset && this.nextSequence <= sequence) {
+                this.nextSequence = sequence + 1;
+                this.releasedSequence = this.nextSequence;
+                this.appendedSequence = sequence;
+            }
+            writeHeader();
+            this.notFull.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return the records not released yet, in order
+     */
+    List<Entry> unreleased() {
+        this.lock.lock();
+        try {
+            List<Entry> entries = new ArrayList<>();
+            for (long offset = this.releasedOffset; offset < this.writeOffset; ) {
+                Entry entry = readAt(offset);
+                entries.add(entry);
+                offset = entry.end;
+            }
+            return entries;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of bytes held by records not released yet
+     */
+    long size() {
+        this.lock.lock();
+        try {
+            return this.writeOffset - this.releasedOffset;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    int capacity() {
+        return this.capacity;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.lock.lock();
+        try {
+            this.buffer.force();
+            this.channel.close();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Force the records up to the given one to disk. The appenders that wait for the same force share it, so that
+     * concurrent appends cost one write to disk.
+     */
+    private void force(long sequence) {
+        if (this.forcedSequence >= sequence) {
+            return;
+        }
+        this.forceLock.lock();
+        try {
+            if (this.forcedSequence < sequence) {
+                long appended = this.appendedSequence;
+                this.buffer.force();
+                this.forcedSequence = appended;
+            }
+        } finally {
+            this.forceLock.unlock();
+        }
+    }
+
+    private void recover(long offset, long sequence) {
+        long released = offset;
+        long end = offset;
+        long next = sequence;
+        long expected = -1;
+        for (;;) {
+            Entry entry = readAt(end);
+            if (entry == null || entry.end - offset > this.capacity
+                || (expected >= 0 && entry.sequence != expected)) {
+                break;
+            }
+            end = entry.end;
+            expected = entry.sequence + 1;
+            if (entry.sequence < sequence) {
+                // released, but the header was not updated past it
+                released = end;
+            } else {
+                next = expected;
+            }
+        }
+        this.releasedOffset = released;
+        this.takenOffset = released;
+        this.writeOffset = end;
+        this.nextSequence = next;
+        this.releasedSequence = released == end ? next : readAt(released).sequence;
+        writeHeader();
+    }
+
+    /**
+     * @return the record at the given offset, or after the wrap marker there, or {@code null} if there is no valid
+     * record
+     */
+    private Entry readAt(long offset) {
+        long start = offset;
+        if (remaining(start) < RECORD_HEADER_SIZE || this.buffer.getInt(position(start)) == WRAP) {
+            start += remaining(start);
+        }
+        int position = position(start);
+        int length = this.buffer.getInt(position);
+        if (length < PAYLOAD_HEADER_SIZE || RECORD_HEADER_SIZE + length > remaining(start)) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        ByteBuffer record = this.buffer.duplicate();
+        record.position(position + RECORD_HEADER_SIZE);
+        record.get(payload);
+        if (crc(payload) != this.buffer.getInt(position + 4)) {
+            return null;
+        }
+        ByteBuffer in = ByteBuffer.wrap(payload);
+        long sequence = in.getLong();
+        int ownerId = in.getInt();
+        int petId = in.getInt();
+        long epochDay = in.getLong();
+        int descriptionLength = in.getInt();
+        if (descriptionLength != in.remaining()) {
+            return null;
+        }
+        return new Entry(sequence, ownerId, petId, epochDay != NO_DATE ? LocalDate.ofEpochDay(epochDay) : null,
+            new String(payload, in.position(), descriptionLength, StandardCharsets.UTF_8),
+            start + RECORD_HEADER_SIZE + length);
+    }
+
+    private void writeHeader() {
+        // the sequence first: a header torn in between still leads recovery to the right records
+        this.buffer.putLong(16, this.releasedSequence);
+        this.buffer.putLong(8, this.releasedOffset);
+    }
+
+    /**
+     * @return where a record of the given size appended at the given offset starts: there, or at the beginning of
+     * the ring if it does not fit before its end
+     */
+    private long placement(long offset, int size) {
+        int remaining = remaining(offset);
+        return remaining < size ? offset + remaining : offset;
+    }
+
+    private int remaining(long offset) {
+        return this.capacity - (int) (offset % this.capacity);
+    }
+
+    private int position(long offset) {
+        return HEADER_SIZE + (int) (offset % this.capacity);
+    }
+
+    private static int crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * A visit in the log.
+     */
+    static final class Entry {
+
+        final long sequence;
+
+        final int ownerId;
+
+        final int petId;
+
+        final LocalDate date;
+
+        final String description;
+
+        final long end;
+
+        Entry(long sequence, int ownerId, int petId, LocalDate date, String description, long end) {
+            this.sequence = sequence;
+            this.ownerId = ownerId;
+            this.petId = petId;
+            this.date = date;
+            this.description = description;
+            this.end = end;
+        }
+
+        Visit toVisit() {
+            Visit visit = new Visit();
+            visit.setPetId(this.petId);
+            visit.setDate(this.date);
+            visit.setDescription(this.description);
+            return visit;
+        }
+
+    }
+
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLDataException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.validation.ValidationException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.system.VisitWriteBehindProperties;
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.samples.petclinic.visit.VisitRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Writes new visits to the database behind the request: a request appends its validated visit to a {@link VisitLog}
+ * and returns, and a single background writer inserts the visits in batches, each in one transaction.
+ * <p>
+ * A full log makes requests wait up to the offer timeout, then write their visit themselves. The transaction of a
+ * batch also stores the sequence number of its last visit as the checkpoint of the log, and the visits are released
+ * from the log only after it commits; on startup the log is replayed from the checkpoint, so a visit is written once
+ * even if the application stopped in between. A visit the database refuses is dropped and logged, rather than
+ * blocking the visits after it forever. Visits that are not written yet are merged into the pages of their
+ * pet, so that the owner who submitted one sees it right away.
+ */
+public class VisitWriteBehind implements SmartLifecycle {
+
+    static final String METRIC_NAME = "petclinic.visits.write-behind.pending";
+
+    private static final Log logger = LogFactory.getLog(VisitWriteBehind.class);
+
+    private static final Duration MAX_RETRY_DELAY = Duration.ofSeconds(10);
+
+    private final VisitWriteBehindProperties properties;
+
+    private final VisitRepository visits;
+
+    private final PetRepository pets;
+
+    private final EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final JdbcTemplate jdbc;
+
+    private final MeterRegistry registry;
+
+    private final NavigableMap<Long, VisitLog.Entry> pending = new ConcurrentSkipListMap<>();
+
+    private volatile long committedThrough;
+
+    private volatile boolean running;
+
+    private VisitLog log;
+
+    private Thread writer;
+
+    public VisitWriteBehind(VisitWriteBehindProperties properties, VisitRepository visits, PetRepository pets,
+                            EntityManager entityManager, PlatformTransactionManager transactionManager,
+                            JdbcTemplate jdbc, MeterRegistry registry) {
+        this.properties = properties;
+        this.visits = visits;
+        this.pets = pets;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jdbc = jdbc;
+        this.registry = registry;
+    }
+
+    /**
+     * Queue a validated visit to be written, waiting for space in the log up to the offer timeout.
+     * @param visit the visit
+     * @param ownerId the owner of the pet of the visit
+     * @return whether the visit was queued; if not, the caller must save it itself
+     */
+    public boolean offer(Visit visit, int ownerId) {
+        if (!this.running) {
+            return false;
+        }
+        VisitLog.Entry entry;
+        try {
+            entry = this.log.append(ownerId, visit, this.properties.getOfferTimeout().toMillis(),
+                TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        if (entry == null) {
+            logger.debug("The visit log is full, writing the visit within the request");
+            return false;
+        }
+        this.pending.put(entry.sequence, entry);
+        if (entry.sequence <= this.committedThrough) {
+            // written before it was indexed
+            this.pending.remove(entry.sequence);
+        }
+        return true;
+    }
+
+    /**
+     * @param ownerId the id of an owner
+     * @return whether visits of the pets of the owner are queued but not written yet
+     */
+    public boolean hasPending(int ownerId) {
+        return this.pending.values().stream().anyMatch(entry -> entry.ownerId == ownerId);
+    }
+
+    /**
+     * Add the visits of the pet that are not written yet to a page of its visits read from the database. They are
+     * merged into the first page, most recent first, and counted in the total of all pages.
+     * @param petId the id of the pet
+     * @param page the page read from the database
+     * @return the page including the pending visits
+     */
+    public Page<Visit> withPending(int petId, Page<Visit> page) {
+        List<Visit> pendingVisits = this.pending.descendingMap().values().stream()
+            .filter(entry -> entry.petId == petId)
+            .map(VisitLog.Entry::toVisit)
+            .collect(Collectors.toList());
+        if (pendingVisits.isEmpty()) {
+            return page;
+        }
+        long total = page.getTotalElements() + pendingVisits.size();
+        if (page.getNumber() > 0) {
+            return new PageImpl<>(page.getContent(), page.getPageable(), total);
+        }
+        List<Visit> content = new ArrayList<>(pendingVisits);
+        content.addAll(page.getContent());
+        content.sort(Comparator.comparing(Visit::getDate, Comparator.nullsLast(Comparator.reverseOrder())));
+        return new PageImpl<>(content.subList(0, Math.min(page.getSize(), content.size())), page.getPageable(),
+            total);
+    }
+
+    @Override
+    public void start() {
+        Path file = Paths.get(this.properties.getDirectory(), this.properties.getName() + ".log");
+        try {
+            this.log = new VisitLog(file, (int) this.properties.getCapacity().toBytes(), this.properties.isFsync());
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot open the visit log " + file, ex);
+        }
+        long checkpoint = this.transactionTemplate.execute(status -> readCheckpoint(true));
+        this.log.releaseThrough(checkpoint);
+        this.committedThrough = checkpoint;
+        for (VisitLog.Entry entry : this.log.unreleased()) {
+            this.pending.put(entry.sequence, entry);
+        }
+        if (!this.pending.isEmpty()) {
+            logger.info("Replaying " + this.pending.size() + " visits from " + file);
+        }
+        if (this.registry != null) {
+            this.registry.gauge(METRIC_NAME, this.pending, Map::size);
+        }
+        this.running = true;
+        this.writer = new Thread(this::writeLoop, "visit-write-behind");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Stop taking visits and wait for the writer to write those in the log. If the database is not available, they
+     * are left in the log for the next start.
+     */
+    @Override
+    public void stop() {
+        this.running = false;
+        try {
+            this.writer.join(TimeUnit.SECONDS.toMillis(30));
+            if (this.writer.isAlive()) {
+                this.writer.interrupt();
+                this.writer.join();
+            }
+            this.log.close();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            logger.warn("Cannot close the visit log", ex);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    private void writeLoop() {
+        try {
+            for (;;) {
+                List<VisitLog.Entry> batch = this.log.take(this.properties.getBatchSize(), 200,
+                    TimeUnit.MILLISECONDS);
+                if (batch.isEmpty()) {
+                    if (!this.running) {
+                        return;
+                    }
+                } else if (!writeWithRetry(batch)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Write the batch, retrying as long as the database fails. A batch the database refuses, e.g. for a visit that
+     * breaks a constraint, is split in halves written on their own, down to the visit at fault, which is dropped.
+     * @return whether the batch was written, {@code false} if the writer stopped before it could be
+     */
+    private boolean writeWithRetry(List<VisitLog.Entry> batch) throws InterruptedException {
+        Duration delay = Duration.ofMillis(100);
+        boolean insert = true;
+        for (;;) {
+            try {
+                write(batch, insert);
+                return true;
+            } catch (RuntimeException ex) {
+                if (insert && isPermanent(ex)) {
+                    if (batch.size() > 1) {
+                        int half = batch.size() / 2;
+                        return writeWithRetry(batch.subList(0, half))
+                            && writeWithRetry(batch.subList(half, batch.size()));
+                    }
+                    VisitLog.Entry entry = batch.get(0);
+                    logger.error("Dropping visit " + entry.sequence + " of pet " + entry.petId + " on " + entry.date
+                        + " (" + entry.description + "), which the database refuses", ex);
+                    insert = false;
+                    continue;
+                }
+                if (!this.running) {
+                    logger.warn("Cannot write " + batch.size() + " visits, leaving them in the log for the next start",
+                        ex);
+                    return false;
+                }
+                logger.warn("Cannot write " + batch.size() + " visits, retrying in " + delay.toMillis() + " ms", ex);
+                Thread.sleep(delay.toMillis());
+                delay = delay.multipliedBy(2);
+                if (delay.compareTo(MAX_RETRY_DELAY) > 0) {
+                    delay = MAX_RETRY_DELAY;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return whether writing the same visits again would fail the same way, whatever the state of the database
+     */
+    private static boolean isPermanent(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataIntegrityViolationException || cause instanceof ValidationException
+                || cause instanceof SQLIntegrityConstraintViolationException || cause instanceof SQLDataException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Insert the visits of the batch not written yet, in one transaction that also moves the checkpoint past the
+     * batch. Visits of pets deleted in the meantime are dropped.
+     * @param insert whether to insert the visits, or only move the checkpoint past them
+     */
+    private void write(List<VisitLog.Entry> batch, boolean insert) {
+        VisitLog.Entry last = batch.get(batch.size() - 1);
+        this.transactionTemplate.execute(status -> {
+            long checkpoint = readCheckpoint(false);
+            List<VisitLog.Entry> entries = !insert ? Collections.emptyList() : batch.stream()
+                .filter(entry -> entry.sequence > checkpoint)
+                .collect(Collectors.toList());
+            Set<Integer> petIds = entries.isEmpty() ? Collections.emptySet()
+                : this.pets.findExistingIds(entries.stream().map(entry -> entry.petId).collect(Collectors.toSet()));
+            for (VisitLog.Entry entry : entries) {
+                if (petIds.contains(entry.petId)) {
+                    this.visits.save(entry.toVisit());
+                } else {
+                    logger.warn("Dropping a visit of pet " + entry.petId + ", which no longer exists");
+                }
+            }
+            this.entityManager.flush();
+            this.entityManager.clear();
+            this.jdbc.update("UPDATE write_behind_checkpoints SET last_sequence = ? WHERE name = ?",
+                last.sequence, this.properties.getName());
+            return null;
+        });
+        this.committedThrough = last.sequence;
+        for (VisitLog.Entry entry : batch) {
+            this.pending.remove(entry.sequence);
+        }
+        this.log.release(last);
+    }
+
+    private long readCheckpoint(boolean create) {
+        if (create && this.jdbc.queryForObject("SELECT COUNT(*) FROM write_behind_checkpoints WHERE name = ?",
+            Integer.class, this.properties.getName()) == 0) {
+            this.jdbc.update("INSERT INTO write_behind_checkpoints (name, last_sequence) VALUES (?, 0)",
+                this.properties.getName());
+        }
+        return this.jdbc.queryForObject("SELECT last_sequence FROM write_behind_checkpoints WHERE name = ?",
+            Long.class, this.properties.getName());
+    }
+
+}
@@ -1,24 +1,84 @@
 package org.springframework.samples.petclinic.system;
 
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import javax.cache.CacheManager;
 import javax.cache.configuration.MutableConfiguration;
+import java.util.Collections;
 
 /**
- * Cache configuration intended for caches providing the JCache API. This configuration creates the used cache for the
- * application and enables statistics that become accessible via JMX.
+ * Cache configuration intended for caches providing the JCache API. The JCache {@link CacheManager} backs the
+ * Hibernate second-level cache: one region per cached entity and collection, sized and expired according to
+ * {@link EntityCacheProperties}, with statistics that become accessible via JMX. It also holds the rendered template
+ * fragments, see {@link FragmentCacheDialect}.
  */
 @Configuration
 @EnableCaching
+@EnableConfigurationProperties(EntityCacheProperties.class)
 class CacheConfiguration {
 
+    /**
+     * Region Hibernate uses to track when each table was last written to, to invalidate cached query results. It
+     * must neither expire nor evict entries, otherwise stale query results could be served.
+     */
+    private static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    /**
+     * The caching provider hands every application context in the JVM, such as the ones of a test run, the same
+     * default cache manager, so a region another context already created is kept as it is.
+     */
     @Bean
-    public JCacheManagerCustomizer petclinicCacheConfigurationCustomizer() {
+    public JCacheManagerCustomizer petclinicCacheConfigurationCustomizer(EntityCacheProperties properties) {
         return cm -> {
-            cm.createCache("vets", cacheConfiguration());
+            for (String region : EntityCacheProperties.REGIONS) {
+                createCache(cm, region, entityCacheConfiguration(properties.getRegion(region)));
+            }
+            createCache(cm, UPDATE_TIMESTAMPS_REGION, cacheConfiguration());
+            createCache(cm, FragmentCacheDialect.CACHE_NAME,
+                entityCacheConfiguration(properties.getRegion(FragmentCacheDialect.CACHE_NAME)));
+        };
+    }
+
+    private static void createCache(CacheManager cacheManager, String name,
+                                    javax.cache.configuration.Configuration<Object, Object> configuration) {
+        if (cacheManager.getCache(name) == null) {
+            cacheManager.createCache(name, configuration);
+            cacheManager.enableStatistics(name, true);
+        }
+    }
+
+    /**
+     * Cache the rendered HTML of the template fragments marked with {@code pc:cache}, in a region sized like the
+     * entity ones.
+     */
+    @Bean
+    public FragmentCacheDialect fragmentCacheDialect(CacheManager cacheManager,
+                                                     @Value("${petclinic.cache.fragments.enabled:true}") boolean enabled) {
+        return new FragmentCacheDialect(cacheManager.getCache(FragmentCacheDialect.CACHE_NAME), enabled);
+    }
+
+    /**
+     * Hand the JCache {@link CacheManager} to Hibernate, so that its regions are the ones created above rather than
+     * unbounded defaults, and register the eviction of collections Hibernate cannot track on its own.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(ObjectProvider<CacheManager> cacheManager) {
+        return properties -> {
+            cacheManager.ifAvailable(cm -> properties.put("hibernate.javax.cache.cache_manager", cm));
+            properties.put("hibernate.integrator_provider",
+                (IntegratorProvider) () -> Collections.singletonList(new CollectionCacheEvictionIntegrator()));
         };
     }
 
@@ -33,4 +93,15 @@ class CacheConfiguration {
         return new MutableConfiguration<>().setStatisticsEnabled(true);
     }
 
+    /**
+     * Create a size-bounded, expiring configuration through the Ehcache API, which is what the JCache API lacks.
+     */
+    private javax.cache.configuration.Configuration<Object, Object> entityCacheConfiguration(
+            EntityCacheProperties.Region region) {
+        return Eh107Configuration.fromEhcacheCacheConfiguration(
+            CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
+                ResourcePoolsBuilder.heap(region.getHeapEntries()))
+                .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(region.getTimeToLive())));
+    }
+
 }
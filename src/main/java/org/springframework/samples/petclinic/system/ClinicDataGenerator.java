@@ -0,0 +1,308 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Generates large, realistic data sets for load testing, straight through batched JDBC.
+ * <p>
+ * Last names follow a Zipf distribution over a vocabulary of common and synthetic surnames, so a few names are very
+ * frequent and prefix searches behave like they do on real data. Owners get between 0 and 5 pets, most of them one or
+ * two; pets get an exponentially distributed number of visits, with a long tail of regular patients.
+ * <p>
+ * Ids are reserved from the {@code id_generator} table before each batch is inserted, so generated rows never
+ * collide with ids Hibernate hands out, even while the application is running.
+ */
+public class ClinicDataGenerator {
+
+    private static final Log logger = LogFactory.getLog(ClinicDataGenerator.class);
+
+    private static final String[] COMMON_LAST_NAMES = {"Smith", "Johnson", "Williams", "Brown", "Jones", "Miller",
+        "Davis", "Garcia", "Rodriguez", "Wilson", "Martinez", "Anderson", "Taylor", "Thomas", "Hernandez", "Moore",
+        "Martin", "Jackson", "Thompson", "White", "Lopez", "Lee", "Gonzalez", "Harris", "Clark", "Lewis", "Robinson",
+        "Walker", "Perez", "Hall", "Young", "Allen", "Sanchez", "Wright", "King", "Scott", "Green", "Baker", "Adams",
+        "Nelson", "Hill", "Ramirez", "Campbell", "Mitchell", "Roberts", "Carter", "Phillips", "Evans", "Turner",
+        "Torres", "Franklin", "Coleman", "Black", "Escobito", "Schroeder", "Estaban", "McTavish", "Rodriquez"};
+
+    private static final String[] SYLLABLES = {"an", "ber", "cal", "dor", "el", "fen", "gar", "hol", "is", "kin",
+        "lan", "mar", "nor", "ol", "pet", "quin", "ros", "sten", "tor", "ul", "van", "wick", "yor", "zel"};
+
+    private static final String[] FIRST_NAMES = {"George", "Betty", "Eduardo", "Harold", "Peter", "Jean", "Jeff",
+        "Maria", "David", "Carlos", "Anna", "James", "Linda", "Michael", "Sarah", "Robert", "Emily", "William",
+        "Olivia", "Daniel", "Sophia", "Thomas", "Emma", "Joseph", "Mia", "Charles", "Ava", "Lucas", "Chloe", "Noah"};
+
+    private static final String[] CITIES = {"Madison", "Sun Prairie", "McFarland", "Windsor", "Monona", "Waunakee",
+        "Middleton", "Verona", "Fitchburg", "Stoughton", "Oregon", "DeForest", "Cottage Grove", "Cross Plains"};
+
+    private static final String[] STREETS = {"W. Liberty St.", "Cardinal Ave.", "Commerce St.", "Friendly St.",
+        "S. Fair Way", "N. Lake St.", "Oak Blvd.", "Maple St.", "Blackhawk Trail", "Independence La."};
+
+    private static final String[] PET_NAMES = {"Leo", "Basil", "Rosy", "Jewel", "Iggy", "George", "Samantha", "Max",
+        "Lucky", "Mulligan", "Freddy", "Sly", "Bella", "Charlie", "Luna", "Daisy", "Milo", "Coco", "Rocky", "Bailey"};
+
+    private static final String[] DESCRIPTIONS = {"rabies shot", "neutered", "spayed", "checkup", "vaccination",
+        "dental cleaning", "skin allergy", "limping", "ear infection", "follow-up"};
+
+    private static final String[] SPECIALTIES = {"radiology", "surgery", "dentistry", "cardiology", "dermatology",
+        "oncology", "ophthalmology", "neurology"};
+
+    private static final int[] PET_COUNT_WEIGHTS = {10, 45, 28, 10, 5, 2};
+
+    private final JdbcTemplate jdbc;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Random random;
+
+    private int batchSize = 1000;
+
+    private int lastNameVocabulary = 5000;
+
+    private double lastNameSkew = 1.0;
+
+    private double meanVisitsPerPet = 3.0;
+
+    public ClinicDataGenerator(JdbcTemplate jdbc, PlatformTransactionManager transactionManager, long seed) {
+        this.jdbc = jdbc;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.random = new Random(seed);
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void setLastNameVocabulary(int lastNameVocabulary) {
+        this.lastNameVocabulary = lastNameVocabulary;
+    }
+
+    public void setLastNameSkew(double lastNameSkew) {
+        this.lastNameSkew = lastNameSkew;
+    }
+
+    public void setMeanVisitsPerPet(double meanVisitsPerPet) {
+        this.meanVisitsPerPet = meanVisitsPerPet;
+    }
+
+    /**
+     * Insert {@code vets} vets with their specialties and {@code owners} owners with their pets and visits.
+     */
+    public void generate(int owners, int vets) {
+        long start = System.currentTimeMillis();
+        generateVets(vets);
+        Zipf lastNames = new Zipf(lastNames(this.lastNameVocabulary), this.lastNameSkew, this.random);
+        Integer[] typeIds = this.jdbc.queryForList("SELECT id FROM types", Integer.class).toArray(new Integer[0]);
+        int pets = 0;
+        int visits = 0;
+        for (int done = 0; done < owners; done += this.batchSize) {
+            int[] counts = generateOwners(Math.min(this.batchSize, owners - done), lastNames, typeIds);
+            pets += counts[0];
+            visits += counts[1];
+            if ((done / this.batchSize) % 100 == 99) {
+                logger.info("Generated " + (done + this.batchSize) + " of " + owners + " owners");
+            }
+        }
+        logger.info("Generated " + owners + " owners, " + pets + " pets, " + visits + " visits and " + vets
+            + " vets in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private void generateVets(int vets) {
+        Set<String> existing = new HashSet<>(this.jdbc.queryForList("SELECT name FROM specialties", String.class));
+        List<Object[]> specialtyRows = new ArrayList<>();
+        for (String name : SPECIALTIES) {
+            if (!existing.contains(name)) {
+                specialtyRows.add(new Object[]{null, name});
+            }
+        }
+        int specialtyId = reserve("specialties", specialtyRows.size());
+        for (Object[] row : specialtyRows) {
+            row[0] = specialtyId++;
+        }
+        List<Integer> specialtyIds = this.jdbc.queryForList("SELECT id FROM specialties", Integer.class);
+        List<Object[]> vetRows = new ArrayList<>();
+        List<Object[]> vetSpecialtyRows = new ArrayList<>();
+        int vetId = reserve("vets", vets);
+        for (int i = 0; i < vets; i++, vetId++) {
+            vetRows.add(new Object[]{vetId, pick(FIRST_NAMES), pick(COMMON_LAST_NAMES)});
+            // most vets have one specialty, a few none or several
+            int count = Math.min(specialtyIds.size(), new int[]{0, 1, 1, 1, 2, 2, 3}[this.random.nextInt(7)]);
+            Set<Integer> chosen = new HashSet<>();
+            while (chosen.size() < count) {
+                chosen.add(specialtyIds.get(this.random.nextInt(specialtyIds.size())));
+            }
+            for (Integer id : chosen) {
+                vetSpecialtyRows.add(new Object[]{vetId, id});
+            }
+        }
+        this.transactionTemplate.execute(status -> {
+            this.jdbc.batchUpdate("INSERT INTO specialties (id, name) VALUES (?, ?)", specialtyRows);
+            this.jdbc.batchUpdate("INSERT INTO vets (id, first_name, last_name) VALUES (?, ?, ?)", vetRows);
+            this.jdbc.batchUpdate("INSERT INTO vet_specialties (vet_id, specialty_id) VALUES (?, ?)",
+                vetSpecialtyRows);
+            return null;
+        });
+    }
+
+    private int[] generateOwners(int owners, Zipf lastNames, Integer[] typeIds) {
+        List<Object[]> ownerRows = new ArrayList<>(owners);
+        List<Object[]> petRows = new ArrayList<>();
+        List<Object[]> visitRows = new ArrayList<>();
+        LocalDate today = LocalDate.now();
+        int ownerId = reserve("owners", owners);
+        for (int i = 0; i < owners; i++, ownerId++) {
+            ownerRows.add(new Object[]{ownerId, pick(FIRST_NAMES), lastNames.next(),
+                (1 + this.random.nextInt(9999)) + " " + pick(STREETS), pick(CITIES),
+                String.format("608%07d", this.random.nextInt(10_000_000))});
+            int pets = weighted(PET_COUNT_WEIGHTS);
+            for (int p = 0; p < pets; p++) {
+                LocalDate birthDate = today.minusDays(30 + this.random.nextInt(15 * 365));
+                petRows.add(new Object[]{null, pick(PET_NAMES), Date.valueOf(birthDate),
+                    typeIds[this.random.nextInt(typeIds.length)], ownerId});
+                int visits = (int) Math.min(200, Math.floor(-Math.log(1 - this.random.nextDouble())
+                    * this.meanVisitsPerPet));
+                long days = ChronoUnit.DAYS.between(birthDate, today);
+                for (int v = 0; v < visits; v++) {
+                    visitRows.add(new Object[]{null, petRows.size() - 1,
+                        Date.valueOf(birthDate.plusDays((long) (this.random.nextDouble() * days))),
+                        pick(DESCRIPTIONS)});
+                }
+            }
+        }
+        int petId = reserve("pets", petRows.size());
+        int[] petIds = new int[petRows.size()];
+        for (int i = 0; i < petRows.size(); i++) {
+            petRows.get(i)[0] = petIds[i] = petId++;
+        }
+        int visitId = reserve("visits", visitRows.size());
+        for (Object[] row : visitRows) {
+            row[0] = visitId++;
+            row[1] = petIds[(Integer) row[1]];
+        }
+        this.transactionTemplate.execute(status -> {
+            this.jdbc.batchUpdate(
+                "INSERT INTO owners (id, first_name, last_name, address, city, telephone) VALUES (?, ?, ?, ?, ?, ?)",
+                ownerRows);
+            this.jdbc.batchUpdate("INSERT INTO pets (id, name, birth_date, type_id, owner_id) VALUES (?, ?, ?, ?, ?)",
+                petRows);
+            this.jdbc.batchUpdate("INSERT INTO visits (id, pet_id, visit_date, description) VALUES (?, ?, ?, ?)",
+                visitRows);
+            return null;
+        });
+        return new int[]{petRows.size(), visitRows.size()};
+    }
+
+    /**
+     * Reserve {@code count} consecutive ids for the given table in the {@code id_generator} table, with a
+     * compare-and-set so that concurrent reservations by Hibernate are never overlapped.
+     * @return the first reserved id
+     */
+    private int reserve(String table, int count) {
+        while (true) {
+            Integer next = this.jdbc.queryForObject("SELECT next_val FROM id_generator WHERE sequence_name = ?",
+                Integer.class, table);
+            if (count == 0 || this.jdbc.update("UPDATE id_generator SET next_val = ? WHERE sequence_name = ? "
+                + "AND next_val = ?", next + count, table, next) == 1) {
+                return next;
+            }
+        }
+    }
+
+    private String pick(String[] values) {
+        return values[this.random.nextInt(values.length)];
+    }
+
+    private int weighted(int[] weights) {
+        int total = Arrays.stream(weights).sum();
+        int r = this.random.nextInt(total);
+        for (int i = 0; i < weights.length; i++) {
+            r -= weights[i];
+            if (r < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    /**
+     * The common surnames first, ranked by frequency, followed by distinct synthetic surnames built from syllables.
+     */
+    private String[] lastNames(int size) {
+        Set<String> names = new LinkedHashSet<>(Arrays.asList(COMMON_LAST_NAMES));
+        Random syllables = new Random(size);
+        while (names.size() < size) {
+            StringBuilder name = new StringBuilder();
+            int length = 2 + syllables.nextInt(2);
+            for (int i = 0; i < length; i++) {
+                name.append(SYLLABLES[syllables.nextInt(SYLLABLES.length)]);
+            }
+            name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+            if (name.length() <= 30) {
+                names.add(name.toString());
+            }
+        }
+        return names.toArray(new String[0]);
+    }
+
+    /**
+     * Samples values with a probability proportional to {@code 1 / rank^skew}, by binary search over the
+     * cumulative distribution.
+     */
+    private static final class Zipf {
+
+        private final String[] values;
+
+        private final double[] cumulative;
+
+        private final Random random;
+
+        Zipf(String[] values, double skew, Random random) {
+            this.values = values;
+            this.cumulative = new double[values.length];
+            this.random = random;
+            double sum = 0;
+            for (int i = 0; i < values.length; i++) {
+                sum += 1 / Math.pow(i + 1, skew);
+                this.cumulative[i] = sum;
+            }
+            for (int i = 0; i < values.length; i++) {
+                this.cumulative[i] /= sum;
+            }
+        }
+
+        String next() {
+            int index = Arrays.binarySearch(this.cumulative, this.random.nextDouble());
+            return this.values[Math.min(index < 0 ? -index - 1 : index, this.values.length - 1)];
+        }
+
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.vet.VetCatalog;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Runs the {@link ClinicDataGenerator} on startup when the {@code generate} profile is active, e.g.
+ * <pre>
+ * java -jar petclinic.jar --spring.profiles.active=mysql,generate --petclinic.generator.owners=1000000
+ * </pre>
+ * With {@code petclinic.generator.exit=true} the application stops once the data is loaded, which suits a persistent
+ * database; otherwise it keeps serving requests against the generated data.
+ */
+@Component
+@Profile("generate")
+class ClinicDataGeneratorRunner implements ApplicationRunner {
+
+    private final ClinicDataGenerator generator;
+
+    private final ConfigurableApplicationContext context;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final CacheManager cacheManager;
+
+    private final int owners;
+
+    private final int vets;
+
+    private final boolean exit;
+
+    public ClinicDataGeneratorRunner(JdbcTemplate jdbc, PlatformTransactionManager transactionManager,
+                                     ConfigurableApplicationContext context, EntityManagerFactory entityManagerFactory,
+                                     CacheManager cacheManager,
+                                     @Value("${petclinic.generator.owners:100000}") int owners,
+                                     @Value("${petclinic.generator.vets:100}") int vets,
+                                     @Value("${petclinic.generator.seed:42}") long seed,
+                                     @Value("${petclinic.generator.batch-size:1000}") int batchSize,
+                                     @Value("${petclinic.generator.last-name-skew:1.0}") double lastNameSkew,
+                                     @Value("${petclinic.generator.exit:false}") boolean exit) {
+        this.generator = new ClinicDataGenerator(jdbc, transactionManager, seed);
+        this.generator.setBatchSize(batchSize);
+        this.generator.setLastNameSkew(lastNameSkew);
+        this.context = context;
+        this.entityManagerFactory = entityManagerFactory;
+        this.cacheManager = cacheManager;
+        this.owners = owners;
+        this.vets = vets;
+        this.exit = exit;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        this.generator.generate(this.owners, this.vets);
+        // the rows bypassed Hibernate, so drop anything cached before they were written
+        this.entityManagerFactory.getCache().evictAll();
+        this.cacheManager.getCacheNames().forEach(name -> this.cacheManager.getCache(name).clear());
+        VetCatalog.invalidate();
+        if (this.exit) {
+            System.exit(SpringApplication.exit(this.context));
+        }
+    }
+
+}
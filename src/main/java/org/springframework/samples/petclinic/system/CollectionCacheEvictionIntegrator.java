@@ -0,0 +1,129 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.Objects;
+
+import org.hibernate.Cache;
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.samples.petclinic.owner.Pet;
+import org.springframework.samples.petclinic.visit.Visit;
+
+/**
+ * Evicts the cached inverse collections whose owning side changed: the {@link Pet#getVisits() visits} of a pet
+ * whenever one of its visits is inserted, updated or deleted, and the {@link Owner#getPets() pets} of an owner whenever
+ * one of its pets is inserted or deleted, or moves to another owner.
+ * <p>
+ * A {@link Visit} only carries the id of its pet, not an association, so Hibernate cannot tell on its own that the
+ * pet's cached collection went stale, and its {@code auto_evict_collection_cache} setting fails on that mapping. Each
+ * entry is evicted right away and again after the transaction completes, so that a concurrent reader cannot put the
+ * old collection back in between.
+ */
+class CollectionCacheEvictionIntegrator implements Integrator, PostInsertEventListener, PostUpdateEventListener,
+    PostDeleteEventListener {
+
+    private static final String PET_VISITS = Pet.class.getName() + ".visits";
+
+    private static final String OWNER_PETS = Owner.class.getName() + ".pets";
+
+    @Override
+    public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
+                          SessionFactoryServiceRegistry serviceRegistry) {
+        EventListenerRegistry registry = serviceRegistry.getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        evict(event.getEntity(), event.getSession());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Visit) {
+            evict(event.getEntity(), event.getSession());
+        } else if (event.getEntity() instanceof Pet && event.getOldState() != null) {
+            // the collection only holds the ids of the pets, it is stale when one moves to another owner
+            int owner = event.getPersister().getEntityMetamodel().getPropertyIndex("owner");
+            Integer previous = id(event.getOldState()[owner]);
+            Integer current = id(event.getState()[owner]);
+            if (!Objects.equals(previous, current)) {
+                evict(OWNER_PETS, previous, event.getSession());
+                evict(OWNER_PETS, current, event.getSession());
+            }
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        evict(event.getEntity(), event.getSession());
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    /**
+     * Still abstract in Hibernate 5.3, which calls {@link #requiresPostCommitHandling} instead.
+     */
+    @Override
+    @Deprecated
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return requiresPostCommitHandling(persister);
+    }
+
+    private void evict(Object entity, EventSource session) {
+        if (entity instanceof Visit) {
+            evict(PET_VISITS, ((Visit) entity).getPetId(), session);
+        } else if (entity instanceof Pet) {
+            evict(OWNER_PETS, id(((Pet) entity).getOwner()), session);
+        }
+    }
+
+    private static Integer id(Object owner) {
+        return owner instanceof Owner ? ((Owner) owner).getId() : null;
+    }
+
+    private void evict(String role, Integer ownerId, EventSource session) {
+        if (ownerId != null) {
+            Cache cache = session.getFactory().getCache();
+            cache.evictCollectionData(role, ownerId);
+            session.getActionQueue().registerProcess((success, s) -> cache.evictCollectionData(role, ownerId));
+        }
+    }
+
+}
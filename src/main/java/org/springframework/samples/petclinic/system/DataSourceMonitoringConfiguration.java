@@ -0,0 +1,69 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import javax.sql.DataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Instruments data access: repository calls are timed through Micrometer, see {@link RepositoryMetricsPostProcessor},
+ * and statements slower than {@link SlowQueryProperties#getThreshold()} are logged, see
+ * {@link SlowQueryLoggingDataSource}. Connection pool metrics are bound by Spring Boot for a single pool and by
+ * {@link DataSourceRoutingConfiguration} for the primary and replicas.
+ */
+@Configuration
+@EnableConfigurationProperties(SlowQueryProperties.class)
+class DataSourceMonitoringConfiguration {
+
+    @Bean
+    public static RepositoryMetricsPostProcessor repositoryMetricsPostProcessor(
+            ObjectProvider<MeterRegistry> registry) {
+        return new RepositoryMetricsPostProcessor(registry);
+    }
+
+    /**
+     * The properties are bound here rather than injected, since post-processors are created before any other bean.
+     */
+    @Bean
+    public static BeanPostProcessor slowQueryLoggingPostProcessor(Environment environment) {
+        SlowQueryProperties slowQueries = Binder.get(environment)
+            .bind("petclinic.datasource.slow-queries", SlowQueryProperties.class)
+            .orElseGet(SlowQueryProperties::new);
+        return new BeanPostProcessor() {
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource) || bean instanceof SlowQueryLoggingDataSource
+                    || slowQueries.getThreshold().isZero()
+                    || slowQueries.getThreshold().isNegative()) {
+                    return bean;
+                }
+                return new SlowQueryLoggingDataSource((DataSource) bean, slowQueries.getThreshold(),
+                    slowQueries.isLogParameters());
+            }
+
+        };
+    }
+
+}
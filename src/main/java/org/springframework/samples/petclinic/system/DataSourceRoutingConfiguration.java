@@ -0,0 +1,154 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Replaces the single {@code spring.datasource} pool with a primary and read replicas once
+ * {@code petclinic.datasource.replicas[0].url} is set: read-only transactions go to the replicas, everything else to
+ * the primary, see {@link ReplicaRoutingDataSource}.
+ */
+@Configuration
+@ConditionalOnProperty("petclinic.datasource.replicas[0].url")
+@EnableConfigurationProperties(DataSourceRoutingProperties.class)
+class DataSourceRoutingConfiguration {
+
+    /**
+     * Only the lazy proxy is a bean, since Spring Boot's JPA auto-configuration needs a single data source
+     * candidate. Destroying the proxy closes the pools of the router behind it.
+     */
+    @Bean
+    public DataSource dataSource(DataSourceProperties primary, DataSourceRoutingProperties routing,
+                                 Environment environment, ResourceLoader resourceLoader,
+                                 ObjectProvider<MeterRegistry> registry) throws IOException {
+        return new RoutingDataSourceProxy(
+            replicaRoutingDataSource(primary, routing, environment, resourceLoader, registry));
+    }
+
+    /**
+     * Since Spring Boot cannot see the pools behind the router, they report their metrics to Micrometer from here,
+     * and the replicas get the primary's driver properties, such as statement caching.
+     */
+    private static ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties primary,
+                                                                     DataSourceRoutingProperties routing,
+                                                                     Environment environment,
+                                                                     ResourceLoader resourceLoader,
+                                                                     ObjectProvider<MeterRegistry> registry)
+            throws IOException {
+        HikariDataSource primaryPool = primary.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primaryPool));
+        if (primaryPool.getPoolName() == null) {
+            primaryPool.setPoolName("primary");
+        }
+        registry.ifAvailable(r -> primaryPool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(r)));
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<DataSourceRoutingProperties.Replica> configured = routing.getReplicas();
+        for (int i = 0; i < configured.size(); i++) {
+            DataSourceRoutingProperties.Replica replica = configured.get(i);
+            if (replica.isInitialize()) {
+                initialize(replica, primary, resourceLoader);
+            }
+            HikariDataSource pool = DataSourceBuilder.create().type(HikariDataSource.class).url(replica.getUrl())
+                .username(replica.getUsername()).password(replica.getPassword()).build();
+            pool.setPoolName("replica-" + i);
+            pool.setReadOnly(true);
+            pool.setMaximumPoolSize(replica.getMaximumPoolSize());
+            pool.setDataSourceProperties(primaryPool.getDataSourceProperties());
+            registry.ifAvailable(r -> pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(r)));
+            replicas.put(pool.getPoolName(), pool);
+        }
+        return new ReplicaRoutingDataSource(primaryPool, replicas, routing.getHealthCheckInterval());
+    }
+
+    /**
+     * Hibernate must give its connection back at the end of each transaction, rather than hold it for the whole
+     * request as it does with open session in view, so that every transaction is routed on its own.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionAfterTransactionCustomizer() {
+        return properties -> properties.put("hibernate.connection.handling_mode",
+            "DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION");
+    }
+
+    /**
+     * Replaces Spring Boot's transaction manager, so that what a replica returns is not cached.
+     */
+    @Bean
+    public PlatformTransactionManager transactionManager(ObjectProvider<TransactionManagerCustomizers> customizers) {
+        JpaTransactionManager transactionManager = new ReplicaAwareTransactionManager();
+        customizers.ifAvailable(c -> c.customize(transactionManager));
+        return transactionManager;
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(DataSourceRoutingProperties routing) {
+        return new ReadYourWritesFilter(routing.getReadYourWritesWindow());
+    }
+
+    /**
+     * Run the primary's schema and data scripts on a replica that nothing replicates into.
+     */
+    private static void initialize(DataSourceRoutingProperties.Replica replica, DataSourceProperties primary,
+                                   ResourceLoader resourceLoader) throws IOException {
+        SchemaScripts.run(primary, resourceLoader,
+            new DriverManagerDataSource(replica.getUrl(), replica.getUsername(), replica.getPassword()));
+    }
+
+    private static class RoutingDataSourceProxy extends LazyConnectionDataSourceProxy implements DisposableBean {
+
+        private final ReplicaRoutingDataSource router;
+
+        RoutingDataSourceProxy(ReplicaRoutingDataSource router) {
+            super(router);
+            this.router = router;
+        }
+
+        @Override
+        public void destroy() throws IOException {
+            this.router.destroy();
+        }
+
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.StringJoiner;
+
+/**
+ * Builds the strong entity tags of pages that are rendered from versioned data.
+ * <p>
+ * Every tag starts with a token naming the build, from the project version and git commit the Maven build writes to
+ * {@code META-INF/build-info.properties} and {@code git.properties}. Every instance of a build agrees on its tags
+ * and keeps them across restarts, while a response cached from a different build, with different templates, is never
+ * revalidated against the same data version. Without those files, as when running from an IDE, the token is chosen
+ * when the application starts.
+ */
+public final class ETags {
+
+    private static final String DEPLOYMENT = deployment();
+
+    private ETags() {
+    }
+
+    /**
+     * @param parts the name of the representation followed by the versions it was rendered from
+     * @return the (unquoted) entity tag, for {@link org.springframework.web.context.request.WebRequest#checkNotModified(String)}
+     */
+    public static String of(Object... parts) {
+        StringJoiner tag = new StringJoiner("-");
+        tag.add(DEPLOYMENT);
+        for (Object part : parts) {
+            tag.add(String.valueOf(part));
+        }
+        return tag.toString();
+    }
+
+    private static String deployment() {
+        String version = load("META-INF/build-info.properties").getProperty("build.version");
+        String commit = load("git.properties").getProperty("git.commit.id.abbrev");
+        if (version == null && commit == null) {
+            return Long.toString(System.currentTimeMillis(), 36);
+        }
+        StringJoiner token = new StringJoiner("+");
+        if (version != null) {
+            token.add(version);
+        }
+        if (commit != null) {
+            token.add(commit);
+        }
+        return token.toString();
+    }
+
+    private static Properties load(String resource) {
+        Properties properties = new Properties();
+        try (InputStream in = ETags.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException ex) {
+            // fall back to the other file, or to the start time
+        }
+        return properties;
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Size and time-to-live of the Hibernate second-level cache regions, and of the {@code fragments} cache of rendered
+ * template fragments, configured with {@code petclinic.cache.regions.<region>.heap-entries} and
+ * {@code petclinic.cache.regions.<region>.time-to-live}.
+ * Regions without settings fall back to the defaults of {@link Region}.
+ */
+@ConfigurationProperties("petclinic.cache")
+public class EntityCacheProperties {
+
+    /**
+     * The regions named by the {@code @Cache} annotations of the entities, plus the query cache region.
+     */
+    public static final List<String> REGIONS = Arrays.asList("owner", "owner-pets", "pet", "pet-visits", "visit",
+        "pet-type", "vet", "vet-specialties", "specialty", "default-query-results-region");
+
+    private final Map<String, Region> regions = new LinkedHashMap<>();
+
+    public Map<String, Region> getRegions() {
+        return this.regions;
+    }
+
+    public Region getRegion(String name) {
+        return this.regions.getOrDefault(name, new Region());
+    }
+
+    public static class Region {
+
+        private long heapEntries = 1000;
+
+        private Duration timeToLive = Duration.ofHours(1);
+
+        public long getHeapEntries() {
+            return this.heapEntries;
+        }
+
+        public void setHeapEntries(long heapEntries) {
+            this.heapEntries = heapEntries;
+        }
+
+        public Duration getTimeToLive() {
+            return this.timeToLive;
+        }
+
+        public void setTimeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+
+    }
+
+}
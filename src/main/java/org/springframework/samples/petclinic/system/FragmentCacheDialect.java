@@ -0,0 +1,124 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.Set;
+
+import javax.cache.Cache;
+
+import org.thymeleaf.context.ITemplateContext;
+import org.thymeleaf.dialect.AbstractProcessorDialect;
+import org.thymeleaf.engine.AttributeName;
+import org.thymeleaf.engine.TemplateManager;
+import org.thymeleaf.engine.TemplateModel;
+import org.thymeleaf.inline.NoOpInliner;
+import org.thymeleaf.model.IModel;
+import org.thymeleaf.model.IProcessableElementTag;
+import org.thymeleaf.processor.IProcessor;
+import org.thymeleaf.processor.element.AbstractAttributeModelProcessor;
+import org.thymeleaf.processor.element.IElementModelStructureHandler;
+import org.thymeleaf.standard.expression.StandardExpressions;
+import org.thymeleaf.templatemode.TemplateMode;
+
+/**
+ * Thymeleaf dialect that caches the rendered HTML of an element and its body, with a {@code pc:cache} attribute
+ * whose value is an expression for the key, e.g. {@code pc:cache="${vets.version}"}. The key is scoped to the template
+ * and locale, so it only needs to name what the fragment shows that can change: a version that is bumped on every
+ * write of the entities shown, or the active menu. Entries for old versions are never read again and age out of the
+ * size-bounded cache.
+ * <p>
+ * On a hit the element is replaced by the cached HTML without evaluating anything in it. On a miss it is selected from
+ * its template and rendered on its own, with the variables of the page, and cached. When disabled the attribute is
+ * removed and nothing is cached.
+ */
+class FragmentCacheDialect extends AbstractProcessorDialect {
+
+    static final String CACHE_NAME = "fragments";
+
+    private static final String PREFIX = "pc";
+
+    private final Cache<Object, Object> cache;
+
+    private final boolean enabled;
+
+    FragmentCacheDialect(Cache<Object, Object> cache, boolean enabled) {
+        super("Petclinic fragment cache", PREFIX, 0);
+        this.cache = cache;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public Set<IProcessor> getProcessors(String dialectPrefix) {
+        return Collections.singleton(new CacheAttributeProcessor(dialectPrefix));
+    }
+
+    private class CacheAttributeProcessor extends AbstractAttributeModelProcessor {
+
+        CacheAttributeProcessor(String dialectPrefix) {
+            // before any other attribute, so that a hit evaluates none of them
+            super(TemplateMode.HTML, dialectPrefix, null, false, "cache", true, 0, true);
+        }
+
+        @Override
+        protected void doProcess(ITemplateContext context, IModel model, AttributeName attributeName,
+                                 String attributeValue, IElementModelStructureHandler structureHandler) {
+            if (!FragmentCacheDialect.this.enabled) {
+                return;
+            }
+            String selector = selector((IProcessableElementTag) model.get(0), attributeName, attributeValue);
+            Set<String> selectors = context.getTemplateData().getTemplateSelectors();
+            if (selectors != null && selectors.contains(selector)) {
+                // the element being rendered on a miss, see render
+                return;
+            }
+            Object value = StandardExpressions.getExpressionParser(context.getConfiguration())
+                .parseExpression(context, attributeValue).execute(context);
+            String key = context.getTemplateData().getTemplate() + ':' + context.getLocale() + ':' + value;
+            String html = (String) FragmentCacheDialect.this.cache.get(key);
+            if (html == null) {
+                html = render(context, selector);
+                FragmentCacheDialect.this.cache.put(key, html);
+            }
+            model.reset();
+            model.add(context.getModelFactory().createText(html));
+            // the HTML is final: text inlining must not evaluate expressions it happens to contain
+            structureHandler.setInliner(NoOpInliner.INSTANCE);
+        }
+
+        /**
+         * Select the element from its template, the way fragments are inserted, and render it with the variables of
+         * the page. The element is processed again there, and recognises itself by the selector of its template.
+         */
+        private String render(ITemplateContext context, String selector) {
+            TemplateManager templateManager = context.getConfiguration().getTemplateManager();
+            TemplateModel element = templateManager.parseStandalone(context, context.getTemplateData().getTemplate(),
+                Collections.singleton(selector), TemplateMode.HTML, true, true);
+            StringWriter html = new StringWriter();
+            templateManager.process(element, context, html);
+            return html.toString();
+        }
+
+        private String selector(IProcessableElementTag tag, AttributeName attributeName, String attributeValue) {
+            String name = tag.getAttribute(attributeName).getAttributeCompleteName();
+            char quote = attributeValue.indexOf('"') < 0 ? '"' : '\'';
+            return "//[" + name + '=' + quote + attributeValue + quote + ']';
+        }
+
+    }
+
+}
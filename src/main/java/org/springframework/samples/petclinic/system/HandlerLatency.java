@@ -0,0 +1,117 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+
+/**
+ * The latency of one handler method, or of one model attribute method, read back from its timers for
+ * {@link LatencyDashboardController}.
+ */
+public class HandlerLatency {
+
+    private final String name;
+
+    private final Map<String, Latency> phases = new HashMap<>();
+
+    HandlerLatency(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return one entry per timed method, by controller and method name, with a latency per {@code phase} tag, or
+     * under {@code total} for timers without one
+     */
+    static Collection<HandlerLatency> of(MeterRegistry registry, String metricName) {
+        Map<String, HandlerLatency> handlers = new TreeMap<>();
+        for (Timer timer : registry.find(metricName).timers()) {
+            String name = timer.getId().getTag("controller") + "." + timer.getId().getTag("method");
+            String phase = timer.getId().getTag("phase");
+            handlers.computeIfAbsent(name, HandlerLatency::new).phases
+                .put(phase == null ? "total" : phase, new Latency(timer));
+        }
+        return handlers.values();
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public Map<String, Latency> getPhases() {
+        return this.phases;
+    }
+
+    /**
+     * Count, mean and percentiles of a timer, in milliseconds.
+     */
+    public static class Latency {
+
+        private final long count;
+
+        private final double mean;
+
+        private final List<Double> percentiles = new ArrayList<>();
+
+        Latency(Timer timer) {
+            HistogramSnapshot snapshot = timer.takeSnapshot();
+            this.count = snapshot.count();
+            this.mean = snapshot.mean(TimeUnit.MILLISECONDS);
+            for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+                this.percentiles.add(percentile.value(TimeUnit.MILLISECONDS));
+            }
+        }
+
+        public long getCount() {
+            return this.count;
+        }
+
+        public double getMean() {
+            return this.mean;
+        }
+
+        /**
+         * @return the 50th, 95th and 99th percentiles
+         */
+        public List<Double> getPercentiles() {
+            return this.percentiles;
+        }
+
+        /**
+         * @return the mean and the percentiles, as shown on the dashboard
+         */
+        public String getSummary() {
+            StringBuilder summary = new StringBuilder(String.format(Locale.ROOT, "%.1f", this.mean));
+            for (double percentile : this.percentiles) {
+                summary.append(String.format(Locale.ROOT, " / %.1f", percentile));
+            }
+            return summary.toString();
+        }
+
+    }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.StaticMethodMatcherPointcutAdvisor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Breaks the latency of every petclinic handler down into phases, see {@link HandlerMetricsInterceptor}, and shows
+ * them on {@link LatencyDashboardController}.
+ */
+@Configuration
+class HandlerMetricsConfiguration {
+
+    @Bean
+    public WebMvcConfigurer handlerMetricsConfigurer(MeterRegistry registry) {
+        return new WebMvcConfigurer() {
+
+            @Override
+            public void addInterceptors(InterceptorRegistry interceptors) {
+                interceptors.addInterceptor(new HandlerMetricsInterceptor(registry));
+            }
+
+        };
+    }
+
+    /**
+     * Spring MVC calls {@code @ModelAttribute} methods on its own, before the handler and out of reach of a
+     * {@link org.springframework.web.servlet.HandlerInterceptor}, so controllers that have any are proxied to time
+     * them, each with a {@value HandlerMetricsInterceptor#MODEL_ATTRIBUTE_METRIC_NAME} timer.
+     */
+    @Bean
+    public static BeanPostProcessor modelAttributeMetricsPostProcessor(ObjectProvider<MeterRegistry> registry) {
+        return new BeanPostProcessor() {
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                Class<?> type = ClassUtils.getUserClass(bean);
+                if (!AnnotatedElementUtils.hasAnnotation(type, Controller.class)
+                    || !HandlerMetricsInterceptor.isInstrumented(type)) {
+                    return bean;
+                }
+                Set<Method> modelAttributeMethods = MethodIntrospector.selectMethods(type,
+                    (ReflectionUtils.MethodFilter) method -> AnnotatedElementUtils.hasAnnotation(method,
+                        ModelAttribute.class) && !AnnotatedElementUtils.hasAnnotation(method, RequestMapping.class));
+                MeterRegistry meterRegistry = registry.getIfAvailable();
+                if (modelAttributeMethods.isEmpty() || meterRegistry == null) {
+                    return bean;
+                }
+                String controller = type.getSimpleName();
+                MethodInterceptor timing = invocation -> {
+                    long start = System.nanoTime();
+                    try {
+                        return invocation.proceed();
+                    } finally {
+                        long nanos = System.nanoTime() - start;
+                        HandlerMetricsInterceptor.timer(meterRegistry,
+                            HandlerMetricsInterceptor.MODEL_ATTRIBUTE_METRIC_NAME, controller,
+                            invocation.getMethod().getName(), null).record(nanos, TimeUnit.NANOSECONDS);
+                        RequestProfile.modelAttribute(nanos);
+                    }
+                };
+                ProxyFactory proxyFactory = new ProxyFactory(bean);
+                proxyFactory.setProxyTargetClass(true);
+                proxyFactory.addAdvisor(new StaticMethodMatcherPointcutAdvisor(timing) {
+
+                    @Override
+                    public boolean matches(Method method, Class<?> targetClass) {
+                        return modelAttributeMethods.contains(method);
+                    }
+
+                });
+                return proxyFactory.getProxy(type.getClassLoader());
+            }
+
+        };
+    }
+
+}
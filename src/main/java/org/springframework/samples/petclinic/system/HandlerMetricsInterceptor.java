@@ -0,0 +1,112 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.samples.petclinic.PetClinicApplication;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+/**
+ * Times each petclinic handler method with a {@value #METRIC_NAME} timer per phase:
+ * <ul>
+ * <li>{@code total}, from the handler mapping to the rendered response,</li>
+ * <li>{@code model}, in the {@code @ModelAttribute} methods of the controller,</li>
+ * <li>{@code handler}, in the handler method itself and the binding of its arguments,</li>
+ * <li>{@code repository}, in repository calls made from either of the two above,</li>
+ * <li>{@code render}, in the view, i.e. the Thymeleaf template.</li>
+ * </ul>
+ */
+class HandlerMetricsInterceptor implements HandlerInterceptor {
+
+    static final String METRIC_NAME = "petclinic.handler";
+
+    static final String MODEL_ATTRIBUTE_METRIC_NAME = "petclinic.handler.model-attribute";
+
+    private static final String PACKAGE = PetClinicApplication.class.getPackage().getName() + ".";
+
+    private final MeterRegistry registry;
+
+    HandlerMetricsInterceptor(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * @return whether requests handled by the given controller are timed
+     */
+    static boolean isInstrumented(Class<?> controller) {
+        return controller.getName().startsWith(PACKAGE) && controller != LatencyDashboardController.class;
+    }
+
+    static Timer timer(MeterRegistry registry, String name, String controller, String method, String phase) {
+        Timer.Builder builder = Timer.builder(name).tag("controller", controller).tag("method", method)
+            .publishPercentiles(0.5, 0.95, 0.99).publishPercentileHistogram();
+        return (phase == null ? builder : builder.tag("phase", phase)).register(registry);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod && isInstrumented(((HandlerMethod) handler).getBeanType())) {
+            RequestProfile.start();
+        }
+        return true;
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+                           ModelAndView modelAndView) {
+        RequestProfile profile = RequestProfile.current();
+        if (profile != null) {
+            profile.handled = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        RequestProfile profile = RequestProfile.current();
+        if (profile == null) {
+            return;
+        }
+        RequestProfile.end();
+        long completed = System.nanoTime();
+        HandlerMethod handlerMethod = (HandlerMethod) handler;
+        String controller = handlerMethod.getBeanType().getSimpleName();
+        String method = handlerMethod.getMethod().getName();
+        long handled = profile.handled == 0 ? completed : profile.handled;
+        record(controller, method, "total", completed - profile.started);
+        record(controller, method, "handler", handled - profile.started - profile.modelNanos);
+        record(controller, method, "repository", profile.repositoryNanos);
+        if (profile.modelAttributes > 0) {
+            record(controller, method, "model", profile.modelNanos);
+        }
+        if (profile.handled != 0) {
+            record(controller, method, "render", completed - profile.handled);
+        }
+    }
+
+    private void record(String controller, String method, String phase, long nanos) {
+        timer(this.registry, METRIC_NAME, controller, method, phase).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.Map;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+
+/**
+ * Shows where the handlers spend their time, from the timers of {@link HandlerMetricsInterceptor}.
+ */
+@Controller
+class LatencyDashboardController {
+
+    private final MeterRegistry registry;
+
+    public LatencyDashboardController(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @GetMapping("/latency")
+    public String showLatency(Map<String, Object> model) {
+        model.put("handlers", HandlerLatency.of(this.registry, HandlerMetricsInterceptor.METRIC_NAME));
+        model.put("modelAttributes",
+            HandlerLatency.of(this.registry, HandlerMetricsInterceptor.MODEL_ATTRIBUTE_METRIC_NAME));
+        return "latency/latencyDashboard";
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.core.io.ResourceLoader;
+
+/**
+ * Runs the schema and data scripts on the {@code dataSource} only when it has no {@value #SCHEMA_TABLE} table yet,
+ * instead of on every start as {@code spring.datasource.initialization-mode=always} does, which on MySQL costs a
+ * round trip per statement and on HSQLDB drops what is there.
+ */
+class MissingSchemaInitializer implements BeanPostProcessor {
+
+    static final String SCHEMA_TABLE = "owners";
+
+    private static final Log logger = LogFactory.getLog(MissingSchemaInitializer.class);
+
+    private final ObjectProvider<DataSourceProperties> properties;
+
+    private final ResourceLoader resourceLoader;
+
+    MissingSchemaInitializer(ObjectProvider<DataSourceProperties> properties, ResourceLoader resourceLoader) {
+        this.properties = properties;
+        this.resourceLoader = resourceLoader;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource && "dataSource".equals(beanName)) {
+            DataSource dataSource = (DataSource) bean;
+            try {
+                if (hasSchema(dataSource)) {
+                    logger.debug("Schema found, skipping the schema and data scripts");
+                } else {
+                    long start = System.nanoTime();
+                    SchemaScripts.run(this.properties.getObject(), this.resourceLoader, dataSource);
+                    logger.info("No schema found, ran the schema and data scripts in "
+                        + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+                }
+            } catch (SQLException | IOException ex) {
+                throw new BeanCreationException(beanName, "Cannot initialize the schema", ex);
+            }
+        }
+        return bean;
+    }
+
+    static boolean hasSchema(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            // unquoted names are stored upper case by HSQLDB and as written by MySQL
+            for (String name : new String[]{SCHEMA_TABLE, SCHEMA_TABLE.toUpperCase(Locale.ROOT)}) {
+                try (ResultSet tables = metaData.getTables(connection.getCatalog(), null, name,
+                    new String[]{"TABLE"})) {
+                    if (tables.next()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+}
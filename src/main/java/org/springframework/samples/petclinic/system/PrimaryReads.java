@@ -0,0 +1,56 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.function.Supplier;
+
+/**
+ * Sends the reads of the current thread to the primary database, even those of read-only transactions.
+ * <p>
+ * For the in-memory caches and indexes rebuilt after a write commits: read from a replica that has not caught up
+ * yet, they would miss the write and keep serving the old data until the next one. Without replicas, everything
+ * reads from the primary anyway.
+ *
+ * @see ReplicaRoutingDataSource
+ */
+public final class PrimaryReads {
+
+    private static final ThreadLocal<Boolean> active = new ThreadLocal<>();
+
+    private PrimaryReads() {
+    }
+
+    /**
+     * @param reads the reads to run, which begin their own transactions
+     * @return the result of the reads
+     */
+    public static <T> T call(Supplier<T> reads) {
+        if (isActive()) {
+            return reads.get();
+        }
+        active.set(Boolean.TRUE);
+        try {
+            return reads.get();
+        } finally {
+            active.remove();
+        }
+    }
+
+    static boolean isActive() {
+        return active.get() != null;
+    }
+
+}
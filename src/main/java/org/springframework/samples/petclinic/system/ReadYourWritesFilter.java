@@ -0,0 +1,116 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+/**
+ * Keeps the reads of a client on the primary database for a while after it wrote, so that it sees its own changes,
+ * e.g. on the page it is redirected to after a form, even if the replicas have not caught up yet.
+ * <p>
+ * The time of the last write is kept in a cookie, set as soon as a write transaction commits. Requests carrying a
+ * cookie younger than the window, and the rest of a request that wrote, are pinned to the primary.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE = "PETCLINIC_LAST_WRITE";
+
+    private static final ThreadLocal<Client> current = new ThreadLocal<>();
+
+    private final Duration window;
+
+    public ReadYourWritesFilter(Duration window) {
+        this.window = window;
+    }
+
+    /**
+     * @return whether the reads of the current request must go to the primary
+     */
+    static boolean isPinnedToPrimary() {
+        Client client = current.get();
+        return client != null && client.pinned;
+    }
+
+    /**
+     * Record that the current request committed a write, or queued one that is committed shortly after, e.g. a
+     * visit written behind.
+     */
+    public static void written() {
+        Client client = current.get();
+        if (client == null) {
+            return;
+        }
+        client.pinned = true;
+        if (!client.response.isCommitted()) {
+            Cookie cookie = new Cookie(COOKIE, Long.toString(System.currentTimeMillis()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, (client.window.toMillis() + 999) / 1000));
+            client.response.addCookie(cookie);
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        current.set(new Client(response, this.window, wroteRecently(request)));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            current.remove();
+        }
+    }
+
+    private boolean wroteRecently(HttpServletRequest request) {
+        Cookie cookie = WebUtils.getCookie(request, COOKIE);
+        if (cookie == null) {
+            return false;
+        }
+        try {
+            long age = System.currentTimeMillis() - Long.parseLong(cookie.getValue());
+            return age >= 0 && age < this.window.toMillis();
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+
+    private static class Client {
+
+        private final HttpServletResponse response;
+
+        private final Duration window;
+
+        private boolean pinned;
+
+        Client(HttpServletResponse response, Duration window, boolean pinned) {
+            this.response = response;
+            this.window = window;
+            this.pinned = pinned;
+        }
+
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import javax.persistence.CacheStoreMode;
+import javax.persistence.EntityManager;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps what read-only transactions load from a replica out of Hibernate's second-level cache. A replica may lag
+ * behind the primary, and its rows would outlive the lag in the cache, served to every client, including those whose
+ * reads are pinned to the primary. Such transactions still read from the cache.
+ *
+ * @see ReplicaRoutingDataSource
+ */
+class ReplicaAwareTransactionManager extends JpaTransactionManager {
+
+    private static final String STORE_MODE = AvailableSettings.JPA_SHARED_CACHE_STORE_MODE;
+
+    @Override
+    protected void prepareSynchronization(DefaultTransactionStatus status, TransactionDefinition definition) {
+        super.prepareSynchronization(status, definition);
+        if (!status.isNewTransaction() || !status.isNewSynchronization() || !ReplicaRoutingDataSource.readsReplica()) {
+            return;
+        }
+        EntityManager entityManager = ((EntityManagerHolder) TransactionSynchronizationManager
+            .getResource(obtainEntityManagerFactory())).getEntityManager();
+        Object previous = entityManager.getProperties().get(STORE_MODE);
+        entityManager.setProperty(STORE_MODE, CacheStoreMode.BYPASS);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                entityManager.setProperty(STORE_MODE, previous == null ? CacheStoreMode.USE : previous);
+            }
+        });
+    }
+
+}
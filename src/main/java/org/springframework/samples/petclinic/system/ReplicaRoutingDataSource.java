@@ -0,0 +1,190 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Routes the connections of read-only transactions to the healthy replicas, in turn, and all others to the primary.
+ * <p>
+ * The route is decided when the connection is obtained, so this must sit behind a
+ * {@link LazyConnectionDataSourceProxy}: the transaction is only marked read-only after it began. Reads of a client
+ * that wrote recently stay on the primary, see {@link ReadYourWritesFilter}, and so do the reads that rebuild caches,
+ * see {@link PrimaryReads}; what replicas return is kept out of Hibernate's second-level cache, see
+ * {@link ReplicaAwareTransactionManager}. A replica that fails to hand out a
+ * connection, or the periodic probe, gets no reads until a probe succeeds again; with no healthy replica left, reads
+ * go to the primary.
+ */
+class ReplicaRoutingDataSource extends AbstractDataSource implements DisposableBean {
+
+    private static final Log logger = LogFactory.getLog(ReplicaRoutingDataSource.class);
+
+    private static final TransactionSynchronizationAdapter WRITE_TRACKER = new TransactionSynchronizationAdapter() {
+
+        @Override
+        public void afterCommit() {
+            ReadYourWritesFilter.written();
+        }
+
+    };
+
+    private final DataSource primary;
+
+    private final List<Replica> replicas = new ArrayList<>();
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final ScheduledExecutorService healthCheck;
+
+    ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Duration healthCheckInterval) {
+        this.primary = primary;
+        replicas.forEach((name, dataSource) -> this.replicas.add(new Replica(name, dataSource)));
+        this.healthCheck = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.healthCheck.scheduleWithFixedDelay(this::checkHealth, 0, healthCheckInterval.toMillis(),
+            TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (readsReplica()) {
+                Connection connection = replicaConnection();
+                if (connection != null) {
+                    return connection;
+                }
+            }
+        } else if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(WRITE_TRACKER);
+        }
+        return this.primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return this.primary.getConnection(username, password);
+    }
+
+    /**
+     * @return whether the current transaction reads from a replica, provided one is healthy
+     */
+    static boolean readsReplica() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+            && !ReadYourWritesFilter.isPinnedToPrimary() && !PrimaryReads.isActive();
+    }
+
+    /**
+     * @return a connection to the next healthy replica, or {@code null} if none can hand one out
+     */
+    private Connection replicaConnection() {
+        int count = this.replicas.size();
+        int start = Math.floorMod(this.next.getAndIncrement(), count);
+        for (int i = 0; i < count; i++) {
+            Replica replica = this.replicas.get((start + i) % count);
+            if (replica.healthy) {
+                try {
+                    return replica.dataSource.getConnection();
+                } catch (SQLException | RuntimeException ex) {
+                    replica.down(ex);
+                }
+            }
+        }
+        return null;
+    }
+
+    private void checkHealth() {
+        for (Replica replica : this.replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                if (connection.isValid(5)) {
+                    replica.up();
+                } else {
+                    replica.down(null);
+                }
+            } catch (SQLException | RuntimeException ex) {
+                replica.down(ex);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        this.healthCheck.shutdownNow();
+        for (Replica replica : this.replicas) {
+            close(replica.dataSource);
+        }
+        close(this.primary);
+    }
+
+    private static void close(DataSource dataSource) throws IOException {
+        if (dataSource instanceof Closeable) {
+            ((Closeable) dataSource).close();
+        }
+    }
+
+    private static class Replica {
+
+        private final String name;
+
+        private final DataSource dataSource;
+
+        private volatile boolean healthy = true;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        void up() {
+            if (!this.healthy) {
+                this.healthy = true;
+                logger.info("Replica " + this.name + " is back, routing reads to it");
+            }
+        }
+
+        void down(Exception ex) {
+            if (this.healthy) {
+                this.healthy = false;
+                logger.warn("Replica " + this.name + " is unavailable, routing its reads elsewhere", ex);
+            }
+        }
+
+    }
+
+}
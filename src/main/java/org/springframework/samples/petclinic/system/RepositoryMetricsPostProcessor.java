@@ -0,0 +1,104 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.Repository;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Times every call into a Spring Data repository with a {@value #METRIC_NAME} timer tagged with the repository, the
+ * method and the exception it threw, if any, and adds it to the {@link RequestProfile} of the current request.
+ * <p>
+ * Only calls made from outside the repository are timed: a default method is timed as a whole, including the queries
+ * it runs through the repository itself.
+ */
+class RepositoryMetricsPostProcessor implements BeanPostProcessor {
+
+    static final String METRIC_NAME = "petclinic.repository";
+
+    private final ObjectProvider<MeterRegistry> registry;
+
+    RepositoryMetricsPostProcessor(ObjectProvider<MeterRegistry> registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof Repository)) {
+            return bean;
+        }
+        MeterRegistry registry = this.registry.getIfAvailable();
+        if (registry == null) {
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory();
+        proxyFactory.setTarget(bean);
+        Class<?> repositoryInterface = null;
+        for (Class<?> candidate : ClassUtils.getAllInterfaces(bean)) {
+            if (Repository.class.isAssignableFrom(candidate) && candidate != Repository.class) {
+                proxyFactory.addInterface(candidate);
+                if (repositoryInterface == null) {
+                    repositoryInterface = candidate;
+                }
+            }
+        }
+        if (repositoryInterface == null) {
+            return bean;
+        }
+        proxyFactory.addAdvice(new Timing(registry, repositoryInterface.getSimpleName()));
+        return proxyFactory.getProxy(repositoryInterface.getClassLoader());
+    }
+
+    private static class Timing implements MethodInterceptor {
+
+        private final MeterRegistry registry;
+
+        private final String repository;
+
+        Timing(MeterRegistry registry, String repository) {
+            this.registry = registry;
+            this.repository = repository;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Timer.Sample sample = Timer.start(this.registry);
+            String exception = "None";
+            try {
+                return invocation.proceed();
+            } catch (Throwable ex) {
+                exception = ex.getClass().getSimpleName();
+                throw ex;
+            } finally {
+                RequestProfile.repository(sample.stop(Timer.builder(METRIC_NAME)
+                    .description("Latency of Spring Data repository calls")
+                    .tag("repository", this.repository)
+                    .tag("method", invocation.getMethod().getName())
+                    .tag("exception", exception)
+                    .register(this.registry)));
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+/**
+ * Where the handling of the current request has spent its time so far, collected by {@link HandlerMetricsInterceptor}
+ * from the model attribute methods and repositories it calls.
+ */
+final class RequestProfile {
+
+    private static final ThreadLocal<RequestProfile> current = new ThreadLocal<>();
+
+    final long started = System.nanoTime();
+
+    long modelNanos;
+
+    int modelAttributes;
+
+    long repositoryNanos;
+
+    long handled;
+
+    private RequestProfile() {
+    }
+
+    static RequestProfile start() {
+        RequestProfile profile = new RequestProfile();
+        current.set(profile);
+        return profile;
+    }
+
+    /**
+     * @return the profile of the current request, or {@code null} outside of an instrumented handler
+     */
+    static RequestProfile current() {
+        return current.get();
+    }
+
+    static void end() {
+        current.remove();
+    }
+
+    static void modelAttribute(long nanos) {
+        RequestProfile profile = current.get();
+        if (profile != null) {
+            profile.modelNanos += nanos;
+            profile.modelAttributes++;
+        }
+    }
+
+    static void repository(long nanos) {
+        RequestProfile profile = current.get();
+        if (profile != null) {
+            profile.repositoryNanos += nanos;
+        }
+    }
+
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Times every statement executed through the target {@link DataSource} and logs, at WARN level, those that take at
+ * least the threshold, with their SQL and, optionally, their bind parameters.
+ * <p>
+ * It replaces the data source bean it wraps, so it closes the target in its place when the context is closed.
+ */
+class SlowQueryLoggingDataSource extends DelegatingDataSource implements DisposableBean {
+
+    private static final Log logger = LogFactory.getLog(SlowQueryLoggingDataSource.class);
+
+    private static final int MAX_PARAMETER_LENGTH = 100;
+
+    private final long thresholdNanos;
+
+    private final boolean logParameters;
+
+    SlowQueryLoggingDataSource(DataSource target, Duration threshold, boolean logParameters) {
+        super(target);
+        this.thresholdNanos = threshold.toNanos();
+        this.logParameters = logParameters;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        DataSource target = obtainTargetDataSource();
+        if (target instanceof DisposableBean) {
+            ((DisposableBean) target).destroy();
+        } else if (target instanceof AutoCloseable) {
+            ((AutoCloseable) target).close();
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(obtainTargetDataSource().getConnection()));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(obtainTargetDataSource().getConnection(username, password)));
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(SlowQueryLoggingDataSource.class.getClassLoader(),
+            new Class<?>[]{type}, handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getTargetException();
+        }
+    }
+
+    private static String format(Object parameter) {
+        if (parameter == null) {
+            return "null";
+        }
+        if (parameter instanceof byte[]) {
+            return "<" + ((byte[]) parameter).length + " bytes>";
+        }
+        String value = parameter.toString();
+        if (value.length() > MAX_PARAMETER_LENGTH) {
+            value = value.substring(0, MAX_PARAMETER_LENGTH) + "...";
+        }
+        return parameter instanceof CharSequence ? "'" + value + "'" : value;
+    }
+
+    /**
+     * Hands out statements that time themselves, and passes everything else through.
+     */
+    private class ConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    Object result = SlowQueryLoggingDataSource.invoke(this.target, method, args);
+                    if (result instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                        String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                        return proxy(method.getReturnType(), new StatementHandler((Statement) result, sql));
+                    }
+                    return result;
+            }
+        }
+
+    }
+
+    /**
+     * Records the bind parameters of a statement and times its executions.
+     */
+    private class StatementHandler implements InvocationHandler {
+
+        private final Statement target;
+
+        private final String sql;
+
+        private final Map<Integer, Object> parameters = new TreeMap<>();
+
+        private int batched;
+
+        StatementHandler(Statement target, String sql) {
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("equals")) {
+                return proxy == args[0];
+            }
+            if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            if (name.startsWith("execute")) {
+                long start = System.nanoTime();
+                try {
+                    return SlowQueryLoggingDataSource.invoke(this.target, method, args);
+                } finally {
+                    long elapsed = System.nanoTime() - start;
+                    if (elapsed >= SlowQueryLoggingDataSource.this.thresholdNanos) {
+                        log(elapsed, args != null && args.length > 0 && args[0] instanceof String ? (String) args[0]
+                            : this.sql);
+                    }
+                    if (name.equals("executeBatch") || name.equals("executeLargeBatch")) {
+                        this.batched = 0;
+                    }
+                }
+            }
+            if (SlowQueryLoggingDataSource.this.logParameters && name.startsWith("set") && args != null
+                && args.length >= 2 && args[0] instanceof Integer) {
+                this.parameters.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                this.parameters.clear();
+            } else if (name.equals("addBatch")) {
+                this.batched++;
+            }
+            return SlowQueryLoggingDataSource.invoke(this.target, method, args);
+        }
+
+        private void log(long elapsedNanos, String sql) {
+            StringBuilder message = new StringBuilder("Slow statement took ")
+                .append(TimeUnit.NANOSECONDS.toMillis(elapsedNanos)).append(" ms");
+            if (this.batched > 0) {
+                message.append(" for a batch of ").append(this.batched);
+            }
+            message.append(": ").append(sql);
+            if (!this.parameters.isEmpty()) {
+                StringJoiner parameters = new StringJoiner(", ", this.batched > 1 ? " last [" : " [", "]");
+                this.parameters.forEach((index, value) -> parameters.add(index + "=" + format(value)));
+                message.append(parameters);
+            }
+            logger.warn(message);
+        }
+
+    }
+
+}
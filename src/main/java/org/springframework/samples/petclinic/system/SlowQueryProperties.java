@@ -0,0 +1,55 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Logging of slow SQL statements, configured with {@code petclinic.datasource.slow-queries.threshold} and
+ * {@code petclinic.datasource.slow-queries.log-parameters}.
+ */
+@ConfigurationProperties("petclinic.datasource.slow-queries")
+public class SlowQueryProperties {
+
+    /**
+     * Statements that take at least this long are logged with their SQL; zero turns the logging off.
+     */
+    private Duration threshold = Duration.ZERO;
+
+    /**
+     * Whether the bind parameters are logged along with the SQL.
+     */
+    private boolean logParameters = true;
+
+    public Duration getThreshold() {
+        return this.threshold;
+    }
+
+    public void setThreshold(Duration threshold) {
+        this.threshold = threshold;
+    }
+
+    public boolean isLogParameters() {
+        return this.logParameters;
+    }
+
+    public void setLogParameters(boolean logParameters) {
+        this.logParameters = logParameters;
+    }
+
+}
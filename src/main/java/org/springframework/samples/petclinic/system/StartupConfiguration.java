@@ -0,0 +1,83 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ResourceLoader;
+
+/**
+ * What the {@code petclinic.startup.*} properties change about startup. Spring Boot 2.1 cannot make all beans lazy,
+ * so only the ones listed in {@code petclinic.startup.lazy-beans} are; a lazy bean that an eager one depends on is
+ * still created at startup.
+ *
+ * @see StartupTimeline
+ */
+@Configuration
+@EnableConfigurationProperties(StartupProperties.class)
+class StartupConfiguration {
+
+    private static final Log logger = LogFactory.getLog(StartupConfiguration.class);
+
+    /**
+     * Static, like every {@link BeanFactoryPostProcessor}, so it reads the bean names from the environment rather than
+     * from {@link StartupProperties}, which is not bound yet.
+     */
+    @Bean
+    public static BeanFactoryPostProcessor lazyBeansPostProcessor(Environment environment) {
+        List<String> lazyBeans = Binder.get(environment)
+            .bind("petclinic.startup.lazy-beans", Bindable.listOf(String.class)).orElse(Collections.emptyList());
+        return beanFactory -> {
+            for (String name : lazyBeans) {
+                if (beanFactory.containsBeanDefinition(name)) {
+                    beanFactory.getBeanDefinition(name).setLazyInit(true);
+                } else {
+                    logger.warn("No bean named '" + name + "' to initialize lazily");
+                }
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty("petclinic.startup.initialize-missing-schema")
+    public static MissingSchemaInitializer missingSchemaInitializer(ObjectProvider<DataSourceProperties> properties,
+                                                                    ResourceLoader resourceLoader) {
+        return new MissingSchemaInitializer(properties, resourceLoader);
+    }
+
+    @Bean
+    @ConditionalOnProperty("petclinic.startup.exit")
+    public ApplicationListener<ApplicationReadyEvent> exitWhenReady() {
+        return event -> System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * What happens while the application starts, configured with {@code petclinic.startup.*}; the {@code fast-startup}
+ * profile sets most of these.
+ */
+@ConfigurationProperties("petclinic.startup")
+public class StartupProperties {
+
+    /**
+     * Beans off the request path, such as the export, bulk import and diagnostic controllers, to create on first use
+     * rather than while the application starts.
+     */
+    private List<String> lazyBeans = new ArrayList<>();
+
+    /**
+     * Whether to run the schema and data scripts only when the database has no schema yet; meant to be used with
+     * {@code spring.datasource.initialization-mode=never}.
+     */
+    private boolean initializeMissingSchema;
+
+    /**
+     * Whether to log how long each startup phase and the slowest beans took once the application is ready.
+     */
+    private boolean report;
+
+    /**
+     * Whether to stop the application once it is ready, e.g. for the training run that records the classes to put
+     * in a Class Data Sharing archive.
+     */
+    private boolean exit;
+
+    public List<String> getLazyBeans() {
+        return this.lazyBeans;
+    }
+
+    public void setLazyBeans(List<String> lazyBeans) {
+        this.lazyBeans = lazyBeans;
+    }
+
+    public boolean isInitializeMissingSchema() {
+        return this.initializeMissingSchema;
+    }
+
+    public void setInitializeMissingSchema(boolean initializeMissingSchema) {
+        this.initializeMissingSchema = initializeMissingSchema;
+    }
+
+    public boolean isReport() {
+        return this.report;
+    }
+
+    public void setReport(boolean report) {
+        this.report = report;
+    }
+
+    public boolean isExit() {
+        return this.exit;
+    }
+
+    public void setExit(boolean exit) {
+        this.exit = exit;
+    }
+
+}
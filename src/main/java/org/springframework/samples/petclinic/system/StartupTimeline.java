@@ -0,0 +1,209 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.SpringApplicationRunListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Times each phase of the application's startup once {@code petclinic.startup.report} is set, and logs them with the
+ * slowest beans when the application is ready:
+ * <ul>
+ * <li>{@code jvm}: from the start of the JVM to {@link SpringApplication#run}, mostly class loading, which a Class
+ * Data Sharing archive shortens</li>
+ * <li>{@code environment}: reading the configuration</li>
+ * <li>{@code context}: creating the application context</li>
+ * <li>{@code bean definitions}: finding the components, from the component index when there is one, and evaluating
+ * the auto-configurations</li>
+ * <li>{@code beans}: creating the singletons, among them the data source with its scripts, the entity manager
+ * factory and the cache manager</li>
+ * <li>{@code web server}: starting Tomcat</li>
+ * <li>{@code ready}: the runners and the listeners that warm up caches and indexes</li>
+ * </ul>
+ * A bean's time includes that of the beans it depends on. Registered in {@code META-INF/spring.factories}; the
+ * latest timeline is kept for the startup benchmark.
+ */
+public class StartupTimeline implements SpringApplicationRunListener, Ordered {
+
+    private static final Log logger = LogFactory.getLog(StartupTimeline.class);
+
+    private static final int SLOWEST_BEANS = 10;
+
+    private static volatile StartupTimeline latest;
+
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+
+    private final Map<String, Long> beans = new ConcurrentHashMap<>();
+
+    private long mark = System.nanoTime();
+
+    private boolean enabled;
+
+    public StartupTimeline(SpringApplication application, String[] args) {
+        latest = this;
+    }
+
+    /**
+     * @return the timeline of the application started last in this JVM, or {@code null}
+     */
+    public static StartupTimeline latest() {
+        return latest;
+    }
+
+    @Override
+    public int getOrder() {
+        // after the listener that publishes the ApplicationReadyEvent, so that the warm-ups count
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+
+    @Override
+    public void starting() {
+    }
+
+    @Override
+    public void environmentPrepared(ConfigurableEnvironment environment) {
+        this.enabled = environment.getProperty("petclinic.startup.report", Boolean.class, false);
+        if (this.enabled) {
+            long sinceRun = System.nanoTime() - this.mark;
+            this.phases.put("jvm", TimeUnit.MILLISECONDS.toNanos(ManagementFactory.getRuntimeMXBean().getUptime())
+                - sinceRun);
+            phase("environment");
+        }
+    }
+
+    @Override
+    public void contextPrepared(ConfigurableApplicationContext context) {
+        if (this.enabled) {
+            // after the configuration classes were parsed, which run before any plain post-processor
+            context.addBeanFactoryPostProcessor(beanFactory -> phase("bean definitions"));
+            context.getBeanFactory().addBeanPostProcessor(new BeanTimer());
+            context.addApplicationListener(event -> {
+                if (event instanceof ContextRefreshedEvent && event.getSource() == context) {
+                    phase("beans");
+                }
+            });
+        }
+    }
+
+    @Override
+    public void contextLoaded(ConfigurableApplicationContext context) {
+        if (this.enabled) {
+            phase("context");
+        }
+    }
+
+    @Override
+    public void started(ConfigurableApplicationContext context) {
+        if (this.enabled) {
+            phase("web server");
+        }
+    }
+
+    @Override
+    public void running(ConfigurableApplicationContext context) {
+        if (this.enabled) {
+            phase("ready");
+            logger.info(this);
+        }
+    }
+
+    @Override
+    public void failed(ConfigurableApplicationContext context, Throwable exception) {
+    }
+
+    /**
+     * @return how long each phase took, in milliseconds, in the order they ran; empty unless the report is enabled
+     */
+    public Map<String, Long> getPhases() {
+        return toMillis(this.phases);
+    }
+
+    /**
+     * @return the slowest beans, with how long each took to create in milliseconds, slowest first
+     */
+    public Map<String, Long> getSlowestBeans() {
+        return toMillis(this.beans.entrySet().stream()
+            .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+            .limit(SLOWEST_BEANS)
+            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new)));
+    }
+
+    @Override
+    public String toString() {
+        Map<String, Long> phases = getPhases();
+        StringBuilder report = new StringBuilder("Started in ")
+            .append(phases.values().stream().mapToLong(Long::longValue).sum()).append(" ms");
+        phases.forEach((name, millis) -> report.append(String.format("%n  %-44s %6d ms", name, millis)));
+        report.append(String.format("%nSlowest beans:"));
+        getSlowestBeans().forEach((name, millis) -> report.append(String.format("%n  %-44s %6d ms",
+            ClassUtils.getShortName(name), millis)));
+        return report.toString();
+    }
+
+    private void phase(String name) {
+        long now = System.nanoTime();
+        this.phases.put(name, now - this.mark);
+        this.mark = now;
+    }
+
+    private static Map<String, Long> toMillis(Map<String, Long> nanos) {
+        Map<String, Long> millis = new LinkedHashMap<>();
+        nanos.forEach((name, value) -> millis.put(name, TimeUnit.NANOSECONDS.toMillis(value)));
+        return Collections.unmodifiableMap(millis);
+    }
+
+    /**
+     * Times each bean from just before it is instantiated to just after it is initialized. Beans may be created on
+     * more than one thread, e.g. the entity manager factory with a deferred repository bootstrap.
+     */
+    private class BeanTimer implements InstantiationAwareBeanPostProcessor {
+
+        private final Map<String, Long> started = new ConcurrentHashMap<>();
+
+        @Override
+        public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) {
+            this.started.put(beanName, System.nanoTime());
+            return null;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            Long start = this.started.remove(beanName);
+            if (start != null) {
+                StartupTimeline.this.beans.merge(beanName, System.nanoTime() - start, Long::sum);
+            }
+            return bean;
+        }
+
+    }
+
+}
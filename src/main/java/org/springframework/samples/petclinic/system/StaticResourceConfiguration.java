@@ -0,0 +1,99 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.regex.Pattern;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.boot.autoconfigure.web.ResourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.ResourceUrlEncodingFilter;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+/**
+ * Serves {@code /resources/**} under URLs that carry a hash of the content in the file name, which the links
+ * rendered by Thymeleaf get through {@link ResourceUrlEncodingFilter}, and from the gzip or brotli variant the build
+ * wrote next to a file when the client accepts it. The links within stylesheets are fingerprinted as they are
+ * served, by the {@link org.springframework.web.servlet.resource.CssLinkResourceTransformer} the chain adds, which
+ * skips precompressed variants: the build writes none for stylesheets, which the server compresses instead.
+ * <p>
+ * A fingerprinted URL always denotes the same content, so its response may be cached for a year without ever being
+ * revalidated. A plain URL, e.g. of a font referenced from the stylesheet, keeps the
+ * {@code spring.resources.cache.cachecontrol.*} policy.
+ */
+@Configuration
+class StaticResourceConfiguration {
+
+    static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+    /**
+     * The file name suffix of {@link org.springframework.web.servlet.resource.ContentVersionStrategy}: an MD5 hash.
+     */
+    private static final Pattern FINGERPRINT = Pattern.compile("-[0-9a-f]{32}\\.[^/.]+$");
+
+    @Bean
+    public WebMvcConfigurer staticResourceConfigurer(ResourceProperties resourceProperties) {
+        String plainCacheControl = resourceProperties.getCache().getCachecontrol().toHttpCacheControl()
+            .getHeaderValue();
+        return new WebMvcConfigurer() {
+
+            @Override
+            public void addResourceHandlers(ResourceHandlerRegistry registry) {
+                registry.addResourceHandler("/resources/**")
+                    .addResourceLocations("classpath:/static/resources/")
+                    .resourceChain(true)
+                    .addResolver(new EncodedResourceResolver())
+                    .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"));
+            }
+
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(new HandlerInterceptor() {
+
+                    @Override
+                    public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
+                                             Object handler) {
+                        String cacheControl = isFingerprinted(request.getRequestURI()) ? IMMUTABLE
+                            : plainCacheControl;
+                        if (cacheControl != null) {
+                            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+                        }
+                        return true;
+                    }
+
+                }).addPathPatterns("/resources/**");
+            }
+
+        };
+    }
+
+    /**
+     * @return whether the path names a file by the hash of its content; a wrong hash finds no file
+     */
+    static boolean isFingerprinted(String path) {
+        return FINGERPRINT.matcher(path).find();
+    }
+
+}
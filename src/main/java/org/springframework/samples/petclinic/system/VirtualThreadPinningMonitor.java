@@ -0,0 +1,122 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * Reports virtual threads that stay pinned to their carrier thread, typically by blocking inside a
+ * {@code synchronized} block or method, from the {@code jdk.VirtualThreadPinned} events of Flight Recorder.
+ * <p>
+ * Each event is timed as {@code petclinic.virtual-threads.pinned}, tagged with the first frame outside the JDK, and
+ * the full stack trace is logged the first time that frame shows up.
+ */
+class VirtualThreadPinningMonitor implements InitializingBean, DisposableBean {
+
+    static final String METRIC_NAME = "petclinic.virtual-threads.pinned";
+
+    private static final String EVENT = "jdk.VirtualThreadPinned";
+
+    private static final Log logger = LogFactory.getLog(VirtualThreadPinningMonitor.class);
+
+    private final Duration threshold;
+
+    private final MeterRegistry registry;
+
+    private final Set<String> reported = ConcurrentHashMap.newKeySet();
+
+    private AutoCloseable stream;
+
+    VirtualThreadPinningMonitor(Duration threshold, MeterRegistry registry) {
+        this.threshold = threshold;
+        this.registry = registry;
+    }
+
+    /**
+     * Stream the events through {@code jdk.jfr.consumer.RecordingStream}, which is newer than the Java 11 the build
+     * targets.
+     */
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        Class<?> streamType = Class.forName("jdk.jfr.consumer.RecordingStream");
+        AutoCloseable stream = (AutoCloseable) streamType.getConstructor().newInstance();
+        Object settings = streamType.getMethod("enable", String.class).invoke(stream, EVENT);
+        Class<?> settingsType = Class.forName("jdk.jfr.EventSettings");
+        settingsType.getMethod("withThreshold", Duration.class).invoke(settings, this.threshold);
+        settingsType.getMethod("withStackTrace").invoke(settings);
+        Consumer<RecordedEvent> handler = this::pinned;
+        streamType.getMethod("onEvent", String.class, Consumer.class).invoke(stream, EVENT, handler);
+        streamType.getMethod("startAsync").invoke(stream);
+        this.stream = stream;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (this.stream != null) {
+            this.stream.close();
+        }
+    }
+
+    void pinned(RecordedEvent event) {
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        List<RecordedFrame> frames = stackTrace == null ? null : stackTrace.getFrames();
+        String site = frames == null ? "unknown" : site(frames);
+        if (this.registry != null) {
+            Timer.builder(METRIC_NAME).description("Time virtual threads spent pinned to their carrier")
+                .tag("site", site).register(this.registry).record(event.getDuration());
+        }
+        if (this.reported.add(site) && logger.isWarnEnabled()) {
+            StringBuilder message = new StringBuilder("Virtual thread pinned for ")
+                .append(event.getDuration().toMillis()).append(" ms at ").append(site);
+            if (frames != null) {
+                for (RecordedFrame frame : frames) {
+                    message.append("\n\tat ").append(format(frame));
+                }
+            }
+            logger.warn(message);
+        }
+    }
+
+    private static String site(List<RecordedFrame> frames) {
+        for (RecordedFrame frame : frames) {
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return type + "." + frame.getMethod().getName();
+            }
+        }
+        return frames.isEmpty() ? "unknown" : format(frames.get(0));
+    }
+
+    private static String format(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":"
+            + frame.getLineNumber();
+    }
+
+}
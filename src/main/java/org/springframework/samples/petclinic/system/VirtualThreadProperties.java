@@ -0,0 +1,55 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Running requests on virtual threads, configured with {@code petclinic.virtual-threads.*}.
+ */
+@ConfigurationProperties("petclinic.virtual-threads")
+public class VirtualThreadProperties {
+
+    /**
+     * Whether Tomcat runs each request on a new virtual thread instead of its pool of platform threads; needs Java
+     * 21 or later.
+     */
+    private boolean enabled;
+
+    /**
+     * How long a virtual thread must stay pinned to its carrier before it is reported.
+     */
+    private Duration pinnedThreshold = Duration.ofMillis(20);
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getPinnedThreshold() {
+        return this.pinnedThreshold;
+    }
+
+    public void setPinnedThreshold(Duration pinnedThreshold) {
+        this.pinnedThreshold = pinnedThreshold;
+    }
+
+}
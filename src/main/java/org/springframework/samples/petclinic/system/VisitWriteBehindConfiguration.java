@@ -0,0 +1,51 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import javax.persistence.EntityManager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.owner.PetRepository;
+import org.springframework.samples.petclinic.owner.VisitWriteBehind;
+import org.springframework.samples.petclinic.visit.VisitRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Writes new visits behind the request once {@code petclinic.visits.write-behind.enabled} is set, see
+ * {@link VisitWriteBehind}. The log lives on the local disk of the instance, so this suits a single instance, or
+ * instances that each keep their disk and a name of their own.
+ */
+@Configuration
+@ConditionalOnProperty("petclinic.visits.write-behind.enabled")
+@EnableConfigurationProperties(VisitWriteBehindProperties.class)
+class VisitWriteBehindConfiguration {
+
+    @Bean
+    public VisitWriteBehind visitWriteBehind(VisitWriteBehindProperties properties, VisitRepository visits,
+                                             PetRepository pets, EntityManager entityManager,
+                                             PlatformTransactionManager transactionManager, JdbcTemplate jdbc,
+                                             ObjectProvider<MeterRegistry> registry) {
+        return new VisitWriteBehind(properties, visits, pets, entityManager, transactionManager, jdbc,
+            registry.getIfAvailable());
+    }
+
+}
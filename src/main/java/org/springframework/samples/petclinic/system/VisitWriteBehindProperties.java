@@ -0,0 +1,123 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Writing new visits behind the request, configured with {@code petclinic.visits.write-behind.*}.
+ */
+@ConfigurationProperties("petclinic.visits.write-behind")
+public class VisitWriteBehindProperties {
+
+    /**
+     * Whether new visits are appended to a local log and written to the database in batches by a background
+     * writer, instead of within the request.
+     */
+    private boolean enabled;
+
+    /**
+     * The directory of the log.
+     */
+    private String directory = "data";
+
+    /**
+     * The name of the log, and of its checkpoint in the database; each instance of the application writing to the
+     * same database needs its own.
+     */
+    private String name = "visits";
+
+    /**
+     * The size of the log; a full log makes requests wait. An existing log keeps its size.
+     */
+    private DataSize capacity = DataSize.ofMegabytes(16);
+
+    /**
+     * Whether a visit is forced to disk before the request completes, so that it survives a power loss and not only
+     * a crash of the application.
+     */
+    private boolean fsync = true;
+
+    /**
+     * The most visits written to the database in one transaction.
+     */
+    private int batchSize = 500;
+
+    /**
+     * How long a request waits for space in a full log before it writes its visit to the database itself.
+     */
+    private Duration offerTimeout = Duration.ofSeconds(2);
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+        return this.directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public DataSize getCapacity() {
+        return this.capacity;
+    }
+
+    public void setCapacity(DataSize capacity) {
+        this.capacity = capacity;
+    }
+
+    public boolean isFsync() {
+        return this.fsync;
+    }
+
+    public void setFsync(boolean fsync) {
+        this.fsync = fsync;
+    }
+
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Duration getOfferTimeout() {
+        return this.offerTimeout;
+    }
+
+    public void setOfferTimeout(Duration offerTimeout) {
+        this.offerTimeout = offerTimeout;
+    }
+
+}
@@ -15,23 +15,26 @@
  */
 package org.springframework.samples.petclinic.vet;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
+import javax.persistence.OrderBy;
 import javax.persistence.Table;
 import javax.xml.bind.annotation.XmlElement;
 
-import org.springframework.beans.support.MutableSortDefinition;
-import org.springframework.beans.support.PropertyComparator;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.samples.petclinic.model.Person;
+import org.springframework.samples.petclinic.model.SortedView;
 
 /**
  * Simple JavaBean domain object representing a veterinarian.
@@ -43,29 +46,42 @@ import org.springframework.samples.petclinic.model.Person;
  */
 @Entity
 @Table(name = "vets")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "vet")
+@EntityListeners(VetCatalog.ChangeListener.class)
 public class Vet extends Person {
 
+    private static final Comparator<Specialty> BY_NAME = Comparator.comparing(Specialty::getName,
+        Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+
     @ManyToMany(fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "vet-specialties")
     @JoinTable(name = "vet_specialties", joinColumns = @JoinColumn(name = "vet_id"), inverseJoinColumns = @JoinColumn(name = "specialty_id"))
+    @OrderBy("name")
     private Set<Specialty> specialties;
 
+    private transient SortedView<Specialty> sortedSpecialties;
+
     protected Set<Specialty> getSpecialtiesInternal() {
         if (this.specialties == null) {
-            this.specialties = new HashSet<>();
+            this.specialties = new LinkedHashSet<>();
         }
         return this.specialties;
     }
 
     protected void setSpecialtiesInternal(Set<Specialty> specialties) {
         this.specialties = specialties;
+        if (this.sortedSpecialties != null) {
+            this.sortedSpecialties.invalidate();
+        }
     }
 
     @XmlElement
     public List<Specialty> getSpecialties() {
-        List<Specialty> sortedSpecs = new ArrayList<>(getSpecialtiesInternal());
-        PropertyComparator.sort(sortedSpecs,
-                new MutableSortDefinition("name", true, true));
-        return Collections.unmodifiableList(sortedSpecs);
+        if (this.sortedSpecialties == null) {
+            this.sortedSpecialties = new SortedView<>(BY_NAME);
+        }
+        return this.sortedSpecialties.of(getSpecialtiesInternal());
     }
 
     public int getNrOfSpecialties() {
@@ -74,6 +90,9 @@ public class Vet extends Person {
 
     public void addSpecialty(Specialty specialty) {
         getSpecialtiesInternal().add(specialty);
+        if (this.sortedSpecialties != null) {
+            this.sortedSpecialties.invalidate();
+        }
     }
 
 }
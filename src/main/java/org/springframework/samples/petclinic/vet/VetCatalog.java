@@ -0,0 +1,138 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.samples.petclinic.model.AfterCommit;
+import org.springframework.samples.petclinic.system.PrimaryReads;
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds the current {@link VetSnapshot}, so that listing vets never queries the database or serializes entities.
+ * <p>
+ * Any insert, update or delete of a {@link Vet} or {@link Specialty} bumps a version counter once its transaction
+ * commits; the next read builds a new snapshot at that version and swaps it in.
+ */
+@Component
+public class VetCatalog {
+
+    private static final AtomicLong changes = new AtomicLong();
+
+    private final VetRepository vets;
+
+    private final ObjectMapper objectMapper;
+
+    private final JAXBContext jaxbContext;
+
+    /**
+     * A lock rather than a monitor, which would pin the virtual thread that queries the vets to its carrier.
+     */
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    private volatile VetSnapshot snapshot;
+
+    public VetCatalog(VetRepository vets, ObjectMapper objectMapper) {
+        this.vets = vets;
+        this.objectMapper = objectMapper;
+        try {
+            this.jaxbContext = JAXBContext.newInstance(Vets.class);
+        } catch (JAXBException ex) {
+            throw new IllegalStateException("Cannot create the JAXB context for vets", ex);
+        }
+    }
+
+    /**
+     * @return the snapshot of the latest committed vets
+     */
+    public VetSnapshot current() {
+        VetSnapshot current = this.snapshot;
+        if (current == null || current.getVersion() != changes.get()) {
+            current = reload();
+        }
+        return current;
+    }
+
+    /**
+     * Mark the snapshot stale after vets or specialties were written behind JPA's back, e.g. with plain JDBC.
+     */
+    public static void invalidate() {
+        changes.incrementAndGet();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        current();
+    }
+
+    private VetSnapshot reload() {
+        this.reloadLock.lock();
+        try {
+            long version = changes.get();
+            VetSnapshot current = this.snapshot;
+            if (current == null || current.getVersion() != version) {
+                current = build(version);
+                this.snapshot = current;
+            }
+            return current;
+        } finally {
+            this.reloadLock.unlock();
+        }
+    }
+
+    private VetSnapshot build(long version) {
+        Collection<Vet> all = PrimaryReads.call(this.vets::findAll);
+        Vets vets = new Vets();
+        vets.getVetList().addAll(all);
+        try {
+            ByteArrayOutputStream xml = new ByteArrayOutputStream();
+            this.jaxbContext.createMarshaller().marshal(vets, xml);
+            return new VetSnapshot(version, all, this.objectMapper.writeValueAsBytes(vets), xml.toByteArray());
+        } catch (JsonProcessingException | JAXBException ex) {
+            throw new IllegalStateException("Cannot serialize the vets", ex);
+        }
+    }
+
+    /**
+     * Marks the catalog stale whenever a {@link Vet} or {@link Specialty} is written, after the surrounding
+     * transaction commits so that the rebuild sees the change.
+     */
+    public static class ChangeListener {
+
+        @PostPersist
+        @PostUpdate
+        @PostRemove
+        void changed(Object entity) {
+            AfterCommit.run(VetCatalog::invalidate);
+        }
+
+    }
+
+}
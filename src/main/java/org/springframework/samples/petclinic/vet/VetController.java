@@ -15,11 +15,20 @@
  */
 package org.springframework.samples.petclinic.vet;
 
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.samples.petclinic.system.ETags;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.ResponseBody;
-
-import java.util.Map;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.context.request.WebRequest;
 
 /**
  * @author Juergen Hoeller
@@ -30,29 +39,65 @@ import java.util.Map;
 @Controller
 class VetController {
 
-    private final VetRepository vets;
+    private final VetCatalog vets;
 
-    public VetController(VetRepository clinicService) {
-        this.vets = clinicService;
+    public VetController(VetCatalog vets) {
+        this.vets = vets;
     }
 
+    /**
+     * Render the vet list, or answer 304 if the client's copy carries the digest of the current snapshot in its
+     * {@code ETag}. The digest rather than the snapshot version, which restarts with every process, so that a tag
+     * names the same list on every instance and after a restart.
+     */
     @GetMapping("/vets.html")
-    public String showVetList(Map<String, Object> model) {
-        // Here we are returning an object of type 'Vets' rather than a collection of Vet
-        // objects so it is simpler for Object-Xml mapping
-        Vets vets = new Vets();
-        vets.getVetList().addAll(this.vets.findAll());
-        model.put("vets", vets);
+    public String showVetList(WebRequest request, Map<String, Object> model) {
+        VetSnapshot snapshot = this.vets.current();
+        if (request.checkNotModified(ETags.of("vets", "html", snapshot.getDigest()))) {
+            return null;
+        }
+        model.put("vets", snapshot);
         return "vets/vetList";
     }
 
+    /**
+     * Serve the {@link Vets} representation serialized when the snapshot was built: XML if the client prefers it,
+     * JSON otherwise. Conditional requests are answered like {@link #showVetList}, with one tag per format.
+     */
     @GetMapping({ "/vets" })
-    public @ResponseBody Vets showResourcesVetList() {
-        // Here we are returning an object of type 'Vets' rather than a collection of Vet
-        // objects so it is simpler for JSon/Object mapping
-        Vets vets = new Vets();
-        vets.getVetList().addAll(this.vets.findAll());
-        return vets;
+    public ResponseEntity<byte[]> showResourcesVetList(WebRequest request, HttpServletResponse response,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+        boolean xml = prefersXml(accept);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        VetSnapshot snapshot = this.vets.current();
+        if (request.checkNotModified(ETags.of("vets", xml ? "xml" : "json", snapshot.getDigest()))) {
+            return null;
+        }
+        if (xml) {
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_XML).body(snapshot.getXml());
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON_UTF8).body(snapshot.getJson());
+    }
+
+    private static boolean prefersXml(String accept) {
+        if (accept == null) {
+            return false;
+        }
+        try {
+            List<MediaType> types = MediaType.parseMediaTypes(accept);
+            MediaType.sortBySpecificityAndQuality(types);
+            for (MediaType type : types) {
+                if (type.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                    return false;
+                }
+                if (type.isCompatibleWith(MediaType.APPLICATION_XML) || type.isCompatibleWith(MediaType.TEXT_XML)) {
+                    return true;
+                }
+            }
+        } catch (InvalidMediaTypeException ex) {
+            // fall back to JSON
+        }
+        return false;
     }
 
 }
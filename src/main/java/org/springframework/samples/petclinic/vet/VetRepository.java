@@ -17,7 +17,6 @@ package org.springframework.samples.petclinic.vet;
 
 import java.util.Collection;
 
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.dao.DataAccessException;
 import org.springframework.data.repository.Repository;
 import org.springframework.transaction.annotation.Transactional;
@@ -34,12 +33,12 @@ import org.springframework.transaction.annotation.Transactional;
 public interface VetRepository extends Repository<Vet, Integer> {
 
     /**
-     * Retrieve all <code>Vet</code>s from the data store.
+     * Retrieve all <code>Vet</code>s from the data store. Readers should go through the {@link VetCatalog}, which
+     * keeps the result until a vet or specialty changes.
      *
      * @return a <code>Collection</code> of <code>Vet</code>s
      */
     @Transactional(readOnly = true)
-    @Cacheable("vets")
     Collection<Vet> findAll() throws DataAccessException;
 
 
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.vet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.util.DigestUtils;
+
+/**
+ * Immutable view of all vets at one version of the data, with their specialties already sorted and the
+ * {@code /vets} representations already serialized.
+ *
+ * @see VetCatalog
+ */
+public final class VetSnapshot {
+
+    private final long version;
+
+    private final List<VetView> vetList;
+
+    private final byte[] json;
+
+    private final byte[] xml;
+
+    private final String digest;
+
+    VetSnapshot(long version, Collection<Vet> vets, byte[] json, byte[] xml) {
+        this.version = version;
+        List<VetView> views = new ArrayList<>(vets.size());
+        for (Vet vet : vets) {
+            views.add(new VetView(vet));
+        }
+        this.vetList = Collections.unmodifiableList(views);
+        this.json = json;
+        this.xml = xml;
+        this.digest = DigestUtils.md5DigestAsHex(json);
+    }
+
+    /**
+     * @return a number that changes whenever a vet or a specialty is written
+     */
+    public long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * @return a digest of the vets and their specialties, equal for equal data in any process, unlike
+     * {@link #getVersion()}
+     */
+    public String getDigest() {
+        return this.digest;
+    }
+
+    public List<VetView> getVetList() {
+        return this.vetList;
+    }
+
+    /**
+     * @return the {@link Vets} JSON representation; callers must not modify the array
+     */
+    public byte[] getJson() {
+        return this.json;
+    }
+
+    /**
+     * @return the {@link Vets} XML representation; callers must not modify the array
+     */
+    public byte[] getXml() {
+        return this.xml;
+    }
+
+    /**
+     * A vet and the names of its specialties, in alphabetical order.
+     */
+    public static final class VetView {
+
+        private final Integer id;
+
+        private final String firstName;
+
+        private final String lastName;
+
+        private final List<String> specialties;
+
+        VetView(Vet vet) {
+            this.id = vet.getId();
+            this.firstName = vet.getFirstName();
+            this.lastName = vet.getLastName();
+            List<String> specialties = new ArrayList<>();
+            for (Specialty specialty : vet.getSpecialties()) {
+                specialties.add(specialty.getName());
+            }
+            this.specialties = Collections.unmodifiableList(specialties);
+        }
+
+        public Integer getId() {
+            return this.id;
+        }
+
+        public String getFirstName() {
+            return this.firstName;
+        }
+
+        public String getLastName() {
+            return this.lastName;
+        }
+
+        public List<String> getSpecialties() {
+            return this.specialties;
+        }
+
+        public int getNrOfSpecialties() {
+            return this.specialties.size();
+        }
+
+    }
+
+}
@@ -17,11 +17,16 @@ package org.springframework.samples.petclinic.visit;
 
 import java.time.LocalDate;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.samples.petclinic.model.BaseEntity;
 
@@ -33,6 +38,8 @@ import org.springframework.samples.petclinic.model.BaseEntity;
  */
 @Entity
 @Table(name = "visits")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "visit")
 public class Visit extends BaseEntity {
 
     @Column(name = "visit_date")
@@ -40,12 +47,17 @@ public class Visit extends BaseEntity {
     private LocalDate date;
 
     @NotEmpty
+    @Size(max = 255)
     @Column(name = "description")
     private String description;
 
     @Column(name = "pet_id")
     private Integer petId;
 
+    @Version
+    @Column(name = "version")
+    private Integer version;
+
     /**
      * Creates a new instance of Visit for the current date
      */
@@ -77,4 +89,12 @@ public class Visit extends BaseEntity {
         this.petId = petId;
     }
 
+    public Integer getVersion() {
+        return this.version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
 }
@@ -15,11 +15,22 @@
  */
 package org.springframework.samples.petclinic.visit;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.samples.petclinic.model.BaseEntity;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Repository class for <code>Visit</code> domain objects All method names are compliant with Spring Data naming
@@ -42,4 +53,63 @@ public interface VisitRepository extends Repository<Visit, Integer> {
 
     List<Visit> findByPetId(Integer petId);
 
+    /**
+     * Retrieve one page of the visits of a pet, most recent first, through the {@code (pet_id, visit_date)} index.
+     * Visits without a date come last on every database; HSQLDB would otherwise put them first. The total is only
+     * counted when the page is full.
+     * @param petId the id of the pet
+     * @param pageable the page to retrieve
+     * @return the page of visits
+     */
+    @Query("SELECT visit FROM Visit visit WHERE visit.petId = :petId "
+        + "ORDER BY visit.date DESC NULLS LAST, visit.id DESC")
+    @Transactional(readOnly = true)
+    Page<Visit> findPageByPetId(@Param("petId") Integer petId, Pageable pageable);
+
+    /**
+     * Retrieve the first page of the visits of each of the given pets, most recent first: one statement counts the
+     * visits of all pets, then one per pet with visits reads at most {@code size} of them through the
+     * {@code (pet_id, visit_date)} index, however many visits the pet has.
+     * @param petIds the ids of the pets
+     * @param size the number of visits on each page
+     * @return the page of each pet by pet id, empty for a pet without visits
+     */
+    @Transactional(readOnly = true)
+    default Map<Integer, Page<Visit>> findLatestPagesByPetIdIn(Collection<Integer> petIds, int size) {
+        Map<Integer, Page<Visit>> pages = new HashMap<>();
+        if (petIds.isEmpty()) {
+            return pages;
+        }
+        Map<Integer, Long> totals = new HashMap<>();
+        for (Object[] row : countByPetIdIn(petIds)) {
+            totals.put((Integer) row[0], (Long) row[1]);
+        }
+        Pageable first = PageRequest.of(0, size);
+        for (Integer petId : petIds) {
+            long total = totals.getOrDefault(petId, 0L);
+            List<Visit> latest = total == 0 ? Collections.emptyList() : findLatestByPetId(petId, first);
+            pages.put(petId, new PageImpl<>(latest, first, total));
+        }
+        return pages;
+    }
+
+    /**
+     * Retrieve the most recent visits of a pet in the order of {@link #findPageByPetId}, without counting them.
+     * @param petId the id of the pet
+     * @param pageable the visits to retrieve
+     * @return the visits
+     */
+    @Query("SELECT visit FROM Visit visit WHERE visit.petId = :petId "
+        + "ORDER BY visit.date DESC NULLS LAST, visit.id DESC")
+    @Transactional(readOnly = true)
+    List<Visit> findLatestByPetId(@Param("petId") Integer petId, Pageable pageable);
+
+    /**
+     * @param petIds the ids of the pets
+     * @return the id of each pet with visits and its number of visits
+     */
+    @Query("SELECT visit.petId, COUNT(visit) FROM Visit visit WHERE visit.petId IN :petIds GROUP BY visit.petId")
+    @Transactional(readOnly = true)
+    List<Object[]> countByPetIdIn(@Param("petIds") Collection<Integer> petIds);
+
 }
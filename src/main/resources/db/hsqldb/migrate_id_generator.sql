@@ -0,0 +1,13 @@
+-- Adds the table the entity ids are drawn from to an existing (file based) database, which used identity ids.
+-- Each row starts above the highest id already in its table.
+CREATE TABLE id_generator (
+  sequence_name VARCHAR(80) NOT NULL PRIMARY KEY,
+  next_val      INTEGER NOT NULL
+);
+
+INSERT INTO id_generator SELECT 'vets', COALESCE(MAX(id), 0) + 1 FROM vets;
+INSERT INTO id_generator SELECT 'specialties', COALESCE(MAX(id), 0) + 1 FROM specialties;
+INSERT INTO id_generator SELECT 'types', COALESCE(MAX(id), 0) + 1 FROM types;
+INSERT INTO id_generator SELECT 'owners', COALESCE(MAX(id), 0) + 1 FROM owners;
+INSERT INTO id_generator SELECT 'pets', COALESCE(MAX(id), 0) + 1 FROM pets;
+INSERT INTO id_generator SELECT 'visits', COALESCE(MAX(id), 0) + 1 FROM visits;
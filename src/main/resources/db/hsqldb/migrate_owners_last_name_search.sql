@@ -0,0 +1,4 @@
+-- Adds the case-folded last name column the owner search runs on to an existing (file based) database.
+-- The column is computed by the database, so existing rows are filled by the ALTER itself.
+ALTER TABLE owners ADD COLUMN last_name_search VARCHAR(30) GENERATED ALWAYS AS (LOWER(last_name));
+CREATE INDEX owners_last_name_search ON owners (last_name_search, id);
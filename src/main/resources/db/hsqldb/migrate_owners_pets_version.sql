@@ -0,0 +1,4 @@
+-- Adds the optimistic locking version of owners and pets to an existing (file based) database.
+-- Existing rows start at version 0.
+ALTER TABLE owners ADD COLUMN version INTEGER DEFAULT 0 NOT NULL;
+ALTER TABLE pets ADD COLUMN version INTEGER DEFAULT 0 NOT NULL;
@@ -0,0 +1,4 @@
+-- Replaces the index on visits (pet_id) of an existing (file based) database with one on (pet_id, visit_date),
+-- which also serves the visit history of a pet, most recent first.
+CREATE INDEX visits_pet_id_visit_date ON visits (pet_id, visit_date);
+DROP INDEX visits_pet_id IF EXISTS;
@@ -0,0 +1,3 @@
+-- Adds the optimistic locking version of visits to an existing (file based) database.
+-- Existing rows start at version 0.
+ALTER TABLE visits ADD COLUMN version INTEGER DEFAULT 0 NOT NULL;
@@ -0,0 +1,6 @@
+-- Adds the table in which the write-behind visit queue records how far its log was written to an existing (file
+-- based) database.
+CREATE TABLE write_behind_checkpoints (
+  name          VARCHAR(80) NOT NULL PRIMARY KEY,
+  last_sequence BIGINT NOT NULL
+);
@@ -0,0 +1,21 @@
+-- Adds the table the entity ids are drawn from to an existing database, which used auto-increment ids.
+-- Each row starts above the highest id already in its table, and is raised there if it exists with a lower value.
+USE petclinic;
+
+CREATE TABLE IF NOT EXISTS id_generator (
+  sequence_name VARCHAR(80) NOT NULL PRIMARY KEY,
+  next_val INT(4) UNSIGNED NOT NULL
+) engine=InnoDB;
+
+INSERT INTO id_generator SELECT 'vets', COALESCE(MAX(id), 0) + 1 FROM vets
+  ON DUPLICATE KEY UPDATE next_val = GREATEST(id_generator.next_val, VALUES(next_val));
+INSERT INTO id_generator SELECT 'specialties', COALESCE(MAX(id), 0) + 1 FROM specialties
+  ON DUPLICATE KEY UPDATE next_val = GREATEST(id_generator.next_val, VALUES(next_val));
+INSERT INTO id_generator SELECT 'types', COALESCE(MAX(id), 0) + 1 FROM types
+  ON DUPLICATE KEY UPDATE next_val = GREATEST(id_generator.next_val, VALUES(next_val));
+INSERT INTO id_generator SELECT 'owners', COALESCE(MAX(id), 0) + 1 FROM owners
+  ON DUPLICATE KEY UPDATE next_val = GREATEST(id_generator.next_val, VALUES(next_val));
+INSERT INTO id_generator SELECT 'pets', COALESCE(MAX(id), 0) + 1 FROM pets
+  ON DUPLICATE KEY UPDATE next_val = GREATEST(id_generator.next_val, VALUES(next_val));
+INSERT INTO id_generator SELECT 'visits', COALESCE(MAX(id), 0) + 1 FROM visits
+  ON DUPLICATE KEY UPDATE next_val = GREATEST(id_generator.next_val, VALUES(next_val));
@@ -0,0 +1,7 @@
+-- Adds the case-folded last name column the owner search runs on to an existing database.
+-- The column is computed by the database, so existing rows are filled by the ALTER itself.
+USE petclinic;
+
+ALTER TABLE owners
+  ADD COLUMN last_name_search VARCHAR(30) CHARACTER SET utf8 COLLATE utf8_bin AS (LOWER(last_name)) STORED,
+  ADD INDEX owners_last_name_search (last_name_search, id);
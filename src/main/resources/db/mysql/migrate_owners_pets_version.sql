@@ -0,0 +1,6 @@
+-- Adds the optimistic locking version of owners and pets to an existing database.
+-- Existing rows start at version 0.
+USE petclinic;
+
+ALTER TABLE owners ADD COLUMN version INT(4) UNSIGNED NOT NULL DEFAULT 0;
+ALTER TABLE pets ADD COLUMN version INT(4) UNSIGNED NOT NULL DEFAULT 0;
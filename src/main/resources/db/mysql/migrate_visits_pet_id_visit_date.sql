@@ -0,0 +1,6 @@
+-- Adds the index on visits (pet_id, visit_date) to an existing database, which serves the visit history of a pet,
+-- most recent first. It also backs the foreign key to pets, so the index MySQL created for it can go.
+USE petclinic;
+
+CREATE INDEX visits_pet_id_visit_date ON visits (pet_id, visit_date);
+ALTER TABLE visits DROP INDEX pet_id;
@@ -0,0 +1,5 @@
+-- Adds the optimistic locking version of visits to an existing database.
+-- Existing rows start at version 0.
+USE petclinic;
+
+ALTER TABLE visits ADD COLUMN version INT(4) UNSIGNED NOT NULL DEFAULT 0;
@@ -0,0 +1,7 @@
+-- Adds the table in which the write-behind visit queue records how far its log was written to an existing database.
+USE petclinic;
+
+CREATE TABLE IF NOT EXISTS write_behind_checkpoints (
+  name VARCHAR(80) NOT NULL PRIMARY KEY,
+  last_sequence BIGINT NOT NULL
+) engine=InnoDB;
@@ -8,6 +8,16 @@ GRANT ALL PRIVILEGES ON petclinic.* TO pc@localhost IDENTIFIED BY 'pc';
 
 USE petclinic;
 
+CREATE TABLE IF NOT EXISTS id_generator (
+  sequence_name VARCHAR(80) NOT NULL PRIMARY KEY,
+  next_val INT(4) UNSIGNED NOT NULL
+) engine=InnoDB;
+
+CREATE TABLE IF NOT EXISTS write_behind_checkpoints (
+  name VARCHAR(80) NOT NULL PRIMARY KEY,
+  last_sequence BIGINT NOT NULL
+) engine=InnoDB;
+
 CREATE TABLE IF NOT EXISTS vets (
   id INT(4) UNSIGNED NOT NULL AUTO_INCREMENT PRIMARY KEY,
   first_name VARCHAR(30),
@@ -42,7 +52,10 @@ CREATE TABLE IF NOT EXISTS owners (
   address VARCHAR(255),
   city VARCHAR(80),
   telephone VARCHAR(20),
-  INDEX(last_name)
+  version INT(4) UNSIGNED NOT NULL DEFAULT 0,
+  last_name_search VARCHAR(30) CHARACTER SET utf8 COLLATE utf8_bin AS (LOWER(last_name)) STORED,
+  INDEX(last_name),
+  INDEX owners_last_name_search (last_name_search, id)
 ) engine=InnoDB;
 
 CREATE TABLE IF NOT EXISTS pets (
@@ -51,6 +64,7 @@ CREATE TABLE IF NOT EXISTS pets (
   birth_date DATE,
   type_id INT(4) UNSIGNED NOT NULL,
   owner_id INT(4) UNSIGNED NOT NULL,
+  version INT(4) UNSIGNED NOT NULL DEFAULT 0,
   INDEX(name),
   FOREIGN KEY (owner_id) REFERENCES owners(id),
   FOREIGN KEY (type_id) REFERENCES types(id)
@@ -61,5 +75,7 @@ CREATE TABLE IF NOT EXISTS visits (
   pet_id INT(4) UNSIGNED NOT NULL,
   visit_date DATE,
   description VARCHAR(255),
+  version INT(4) UNSIGNED NOT NULL DEFAULT 0,
+  INDEX visits_pet_id_visit_date (pet_id, visit_date),
   FOREIGN KEY (pet_id) REFERENCES pets(id)
 ) engine=InnoDB;
@@ -16,14 +16,23 @@
 
 package org.springframework.samples.petclinic;
 
+import javax.persistence.EntityManagerFactory;
+
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.samples.petclinic.owner.Pet;
+import org.springframework.samples.petclinic.owner.PetRepository;
+import org.springframework.samples.petclinic.owner.PetType;
+import org.springframework.samples.petclinic.vet.VetCatalog;
 import org.springframework.samples.petclinic.vet.VetRepository;
+import org.springframework.samples.petclinic.vet.VetSnapshot;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 @RunWith(SpringRunner.class)
 @SpringBootTest
 public class PetclinicIntegrationTests {
@@ -31,9 +40,37 @@ public class PetclinicIntegrationTests {
     @Autowired
     private VetRepository vets;
 
+    @Autowired
+    private VetCatalog vetCatalog;
+
+    @Autowired
+    private PetRepository pets;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @Test
     public void testFindAll() throws Exception {
-        vets.findAll();
-        vets.findAll(); // served from cache
+        assertThat(vets.findAll()).hasSize(6);
+    }
+
+    @Test
+    public void testVetSnapshotIsReusedUntilInvalidated() throws Exception {
+        VetSnapshot snapshot = vetCatalog.current();
+        assertThat(snapshot.getVetList()).hasSize(6);
+        assertThat(new String(snapshot.getJson(), "UTF-8")).contains("\"vetList\"");
+        assertThat(vetCatalog.current()).isSameAs(snapshot); // served from the snapshot
+
+        VetCatalog.invalidate();
+        VetSnapshot rebuilt = vetCatalog.current();
+        assertThat(rebuilt).isNotSameAs(snapshot);
+        assertThat(rebuilt.getVersion()).isGreaterThan(snapshot.getVersion());
+    }
+
+    @Test
+    public void testPetIsKeptInSecondLevelCache() throws Exception {
+        Pet pet = pets.findById(7);
+        assertThat(entityManagerFactory.getCache().contains(Pet.class, 7)).isTrue();
+        assertThat(entityManagerFactory.getCache().contains(PetType.class, pet.getType().getId())).isTrue();
     }
 }
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.time.LocalDate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.samples.petclinic.visit.VisitRepository;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that every save path evicts the cached {@code Pet.visits} and {@code Owner.pets} collections it makes stale,
+ * with the application's second-level cache configuration.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class CollectionCacheEvictionTests {
+
+    private static final String PET_VISITS = Pet.class.getName() + ".visits";
+
+    private static final String OWNER_PETS = Owner.class.getName() + ".pets";
+
+    @Autowired
+    private OwnerRepository owners;
+
+    @Autowired
+    private PetRepository pets;
+
+    @Autowired
+    private VisitRepository visits;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Cache cache;
+
+    @Before
+    public void setup() {
+        this.cache = this.entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        this.cache.evictAllRegions();
+    }
+
+    @Test
+    public void savingAVisitEvictsTheVisitsOfItsPet() {
+        assertThat(this.pets.findById(7).getVisits()).hasSize(2);
+        assertThat(this.cache.containsCollection(PET_VISITS, 7)).isTrue();
+
+        Visit visit = new Visit();
+        visit.setPetId(7);
+        visit.setDescription("checkup");
+        this.visits.save(visit);
+        this.entityManager.flush();
+
+        assertThat(this.cache.containsCollection(PET_VISITS, 7)).isFalse();
+    }
+
+    @Test
+    public void savingANewPetEvictsThePetsOfItsOwner() {
+        Owner owner = this.owners.findById(6);
+        assertThat(this.cache.containsCollection(OWNER_PETS, 6)).isTrue();
+
+        Pet pet = new Pet();
+        pet.setName("bowser");
+        pet.setBirthDate(LocalDate.now());
+        pet.setType(this.pets.findPetTypes().get(0));
+        owner.addPet(pet);
+        this.pets.save(pet);
+        this.entityManager.flush();
+
+        assertThat(this.cache.containsCollection(OWNER_PETS, 6)).isFalse();
+    }
+
+    @Test
+    public void movingAPetEvictsThePetsOfBothOwners() {
+        Owner george = this.owners.findById(1);
+        this.owners.findById(6);
+        assertThat(this.cache.containsCollection(OWNER_PETS, 1)).isTrue();
+        assertThat(this.cache.containsCollection(OWNER_PETS, 6)).isTrue();
+
+        Pet pet = this.pets.findById(8);
+        pet.setOwner(george);
+        this.pets.save(pet);
+        this.entityManager.flush();
+
+        assertThat(this.cache.containsCollection(OWNER_PETS, 1)).isFalse();
+        assertThat(this.cache.containsCollection(OWNER_PETS, 6)).isFalse();
+    }
+
+}
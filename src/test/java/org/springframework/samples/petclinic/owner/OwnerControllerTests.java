@@ -1,10 +1,27 @@
 package org.springframework.samples.petclinic.owner;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasKey;
 import static org.hamcrest.Matchers.hasProperty;
 import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
@@ -16,9 +33,17 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.samples.petclinic.owner.Owner;
 import org.springframework.samples.petclinic.owner.OwnerController;
 import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.owner.Pet;
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.samples.petclinic.visit.VisitRepository;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 
@@ -39,6 +64,9 @@ public class OwnerControllerTests {
     @MockBean
     private OwnerRepository owners;
 
+    @MockBean
+    private VisitRepository visits;
+
     private Owner george;
 
     @Before
@@ -97,15 +125,43 @@ public class OwnerControllerTests {
 
     @Test
     public void testProcessFindFormSuccess() throws Exception {
-        given(this.owners.findByLastName("")).willReturn(Lists.newArrayList(george, new Owner()));
+        given(this.owners.findPageByLastName(eq(""), isNull(), isNull(), anyInt()))
+            .willReturn(new OwnerPage(Lists.newArrayList(george, new Owner()), false, false));
         mockMvc.perform(get("/owners"))
+            .andExpect(status().isOk())
+            .andExpect(model().attributeExists("page"))
+            .andExpect(view().name("owners/ownersList"));
+    }
+
+    @Test
+    public void testProcessFindFormNextPage() throws Exception {
+        given(this.owners.findPageByLastName(eq(""), eq("Franklin"), eq(TEST_OWNER_ID), anyInt()))
+            .willReturn(new OwnerPage(Lists.newArrayList(george), true, false));
+        mockMvc.perform(get("/owners")
+            .param("afterName", "Franklin")
+            .param("afterId", String.valueOf(TEST_OWNER_ID))
+        )
+            .andExpect(status().isOk())
+            .andExpect(model().attribute("page", hasProperty("size", is(1))))
+            .andExpect(view().name("owners/ownersList"));
+    }
+
+    @Test
+    public void testProcessFindFormPreviousPage() throws Exception {
+        given(this.owners.findPageByLastNameBefore(eq(""), eq("Franklin"), eq(TEST_OWNER_ID), anyInt()))
+            .willReturn(new OwnerPage(Lists.newArrayList(george, new Owner()), false, true));
+        mockMvc.perform(get("/owners")
+            .param("beforeName", "Franklin")
+            .param("beforeId", String.valueOf(TEST_OWNER_ID))
+        )
             .andExpect(status().isOk())
             .andExpect(view().name("owners/ownersList"));
     }
 
     @Test
     public void testProcessFindFormByLastName() throws Exception {
-        given(this.owners.findByLastName(george.getLastName())).willReturn(Lists.newArrayList(george));
+        given(this.owners.findPageByLastName(eq(george.getLastName()), isNull(), isNull(), anyInt()))
+            .willReturn(new OwnerPage(Lists.newArrayList(george), false, false));
         mockMvc.perform(get("/owners")
             .param("lastName", "Franklin")
         )
@@ -115,6 +171,8 @@ public class OwnerControllerTests {
 
     @Test
     public void testProcessFindFormNoOwnersFound() throws Exception {
+        given(this.owners.findPageByLastName(eq("Unknown Surname"), isNull(), isNull(), anyInt()))
+            .willReturn(new OwnerPage(Lists.emptyList(), false, false));
         mockMvc.perform(get("/owners")
             .param("lastName", "Unknown Surname")
         )
@@ -145,9 +203,47 @@ public class OwnerControllerTests {
             .param("address", "123 Caramel Street")
             .param("city", "London")
             .param("telephone", "01616291589")
+            .param("version", "0")
         )
             .andExpect(status().is3xxRedirection())
             .andExpect(view().name("redirect:/owners/{ownerId}"));
+        verify(this.owners, never()).save(any(Owner.class));
+    }
+
+    @Test
+    public void testProcessUpdateOwnerFormConflict() throws Exception {
+        george.setVersion(3);
+        given(this.owners.updateDetails(any(Owner.class)))
+            .willThrow(new ObjectOptimisticLockingFailureException(Owner.class, TEST_OWNER_ID));
+        mockMvc.perform(post("/owners/{ownerId}/edit", TEST_OWNER_ID)
+            .param("firstName", "George")
+            .param("lastName", "Franklin")
+            .param("address", "110 W. Liberty St.")
+            .param("city", "Madison")
+            .param("telephone", "6085551024")
+            .param("version", "2")
+        )
+            .andExpect(status().isOk())
+            .andExpect(model().attribute("conflict", hasProperty("fields", hasItem(allOf(
+                hasProperty("label", is("Telephone")), hasProperty("changed", is(true)))))))
+            .andExpect(model().attribute("owner", hasProperty("version", is(3))))
+            .andExpect(model().attribute("owner", hasProperty("telephone", is("6085551024"))))
+            .andExpect(view().name("owners/createOrUpdateOwnerForm"));
+    }
+
+    @Test
+    public void testProcessUpdateOwnerFormWithoutVersion() throws Exception {
+        mockMvc.perform(post("/owners/{ownerId}/edit", TEST_OWNER_ID)
+            .param("firstName", "Joe")
+            .param("lastName", "Bloggs")
+            .param("address", "123 Caramel Street")
+            .param("city", "London")
+            .param("telephone", "01616291589")
+        )
+            .andExpect(status().isOk())
+            .andExpect(model().attributeExists("conflict"))
+            .andExpect(view().name("owners/createOrUpdateOwnerForm"));
+        verify(this.owners, never()).updateDetails(any(Owner.class));
     }
 
     @Test
@@ -176,4 +272,44 @@ public class OwnerControllerTests {
             .andExpect(view().name("owners/ownerDetails"));
     }
 
+    @Test
+    public void testShowOwnerWithLatestVisitsOfEachPet() throws Exception {
+        Pet max = new Pet();
+        max.setId(1);
+        max.setName("Max");
+        // addPet only adds new pets, this one keeps the id of a persisted pet
+        george.getPetsInternal().add(max);
+        max.setOwner(george);
+        Visit visit = new Visit();
+        visit.setDescription("rabies shot");
+        Map<Integer, Page<Visit>> latestVisits = new HashMap<>();
+        latestVisits.put(1, new PageImpl<>(Lists.newArrayList(visit), PageRequest.of(0, 5), 12));
+        given(this.visits.findLatestPagesByPetIdIn(Collections.singletonList(1), 5)).willReturn(latestVisits);
+
+        mockMvc.perform(get("/owners/{ownerId}", TEST_OWNER_ID))
+            .andExpect(status().isOk())
+            .andExpect(model().attribute("visits", hasKey(1)))
+            .andExpect(content().string(containsString("rabies shot")))
+            .andExpect(content().string(containsString("All 12 visits")))
+            .andExpect(view().name("owners/ownerDetails"));
+    }
+
+    @Test
+    public void testShowOwnerNotModified() throws Exception {
+        given(this.owners.findDetailsTagById(TEST_OWNER_ID)).willReturn("0.1.0.2.8");
+        String etag = mockMvc.perform(get("/owners/{ownerId}", TEST_OWNER_ID))
+            .andExpect(status().isOk())
+            .andExpect(header().exists(HttpHeaders.ETAG))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/owners/{ownerId}", TEST_OWNER_ID).header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified());
+        verify(this.owners, times(1)).findById(TEST_OWNER_ID);
+
+        given(this.owners.findDetailsTagById(TEST_OWNER_ID)).willReturn("1.1.0.2.8");
+        mockMvc.perform(get("/owners/{ownerId}", TEST_OWNER_ID).header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isOk())
+            .andExpect(view().name("owners/ownerDetails"));
+    }
+
 }
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test class for {@link OwnerExportController}
+ */
+@RunWith(SpringRunner.class)
+@WebMvcTest(OwnerExportController.class)
+public class OwnerExportControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private OwnerExporter exporter;
+
+    @Test
+    public void testExportCsv() throws Exception {
+        given(this.exporter.exportCsv(any(OutputStream.class))).willAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(0).write("owner_id\r\n1\r\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        });
+        mockMvc.perform(get("/owners/export.csv"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("text/csv;charset=UTF-8"))
+            .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"petclinic.csv\""))
+            .andExpect(content().string("owner_id\r\n1\r\n"));
+    }
+
+    @Test
+    public void testExportNdjson() throws Exception {
+        given(this.exporter.exportNdjson(any(OutputStream.class))).willAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(0).write("{\"owner_id\":1}\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        });
+        mockMvc.perform(get("/owners/export.ndjson"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+            .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"petclinic.ndjson\""))
+            .andExpect(content().string("{\"owner_id\":1}\n"));
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Test class for {@link OwnerExporter}
+ */
+public class OwnerExporterTests {
+
+    private OwnerRepository owners;
+
+    private OwnerExporter exporter;
+
+    @Before
+    public void setup() {
+        this.owners = mock(OwnerRepository.class);
+        this.exporter = new OwnerExporter(this.owners, mock(EntityManager.class));
+        given(this.owners.streamAllForExport()).willAnswer(invocation -> Stream.of(
+            new OwnerExportRow(1, "George", "Franklin", "12 \"Main\" St, Apt 3", "Madison", "6085551023", 1, "Leo",
+                LocalDate.of(2010, 9, 7), "cat", 5, LocalDate.of(2013, 1, 1), "first line\nsecond line"),
+            new OwnerExportRow(2, "Betty", "Davis", "638 Cardinal Ave.", "Sun Prairie", "6085551749", null, null,
+                null, null, null, null, null)));
+    }
+
+    @Test
+    public void shouldQuoteCsvValuesWithSeparatorsQuotesOrLineBreaks() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThat(this.exporter.exportCsv(out)).isEqualTo(2);
+        assertThat(out.toString(StandardCharsets.UTF_8.name())).isEqualTo(
+            String.join(",", OwnerExportRow.COLUMNS) + "\r\n"
+                + "1,George,Franklin,\"12 \"\"Main\"\" St, Apt 3\",Madison,6085551023,1,Leo,2010-09-07,cat,5,"
+                + "2013-01-01,\"first line\nsecond line\"\r\n"
+                + "2,Betty,Davis,638 Cardinal Ave.,Sun Prairie,6085551749,,,,,,,\r\n");
+    }
+
+    @Test
+    public void shouldEscapeCsvValues() {
+        assertThat(OwnerExporter.escapeCsv("plain")).isEqualTo("plain");
+        assertThat(OwnerExporter.escapeCsv("a,b")).isEqualTo("\"a,b\"");
+        assertThat(OwnerExporter.escapeCsv("say \"hi\"")).isEqualTo("\"say \"\"hi\"\"\"");
+        assertThat(OwnerExporter.escapeCsv("a\r\nb")).isEqualTo("\"a\r\nb\"");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldWriteOneJsonObjectPerLine() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThat(this.exporter.exportNdjson(out)).isEqualTo(2);
+        String ndjson = out.toString(StandardCharsets.UTF_8.name());
+        assertThat(ndjson).endsWith("\n");
+        String[] lines = ndjson.split("\n");
+        assertThat(lines).hasSize(2);
+
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, Object> first = mapper.readValue(lines[0], Map.class);
+        assertThat(first).containsOnlyKeys(OwnerExportRow.COLUMNS);
+        assertThat(first.get("owner_id")).isEqualTo(1);
+        assertThat(first.get("address")).isEqualTo("12 \"Main\" St, Apt 3");
+        assertThat(first.get("birth_date")).isEqualTo("2010-09-07");
+        assertThat(first.get("visit_description")).isEqualTo("first line\nsecond line");
+        Map<String, Object> second = mapper.readValue(lines[1], Map.class);
+        assertThat(second.get("last_name")).isEqualTo("Davis");
+        assertThat(second.get("pet_id")).isNull();
+    }
+
+}
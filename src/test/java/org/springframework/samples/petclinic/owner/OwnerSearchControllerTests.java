@@ -0,0 +1,98 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
+
+/**
+ * Test class for {@link OwnerSearchController}
+ */
+@RunWith(SpringRunner.class)
+@WebMvcTest(OwnerSearchController.class)
+public class OwnerSearchControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private OwnerSearchIndex index;
+
+    @MockBean
+    private OwnerTypeahead typeahead;
+
+    @MockBean
+    private OwnerRepository owners;
+
+    @Test
+    public void testSearchForm() throws Exception {
+        mockMvc.perform(get("/owners/search"))
+            .andExpect(status().isOk())
+            .andExpect(model().attributeDoesNotExist("selections"))
+            .andExpect(view().name("owners/searchOwners"));
+        verify(this.index, never()).search(anyString(), anyInt());
+    }
+
+    @Test
+    public void testSearch() throws Exception {
+        Owner owner = new Owner();
+        owner.setId(2);
+        owner.setFirstName("Betty");
+        owner.setLastName("Davis");
+        given(this.index.search("davis sun", 50))
+            .willReturn(new OwnerSearchIndex.Result(Collections.singletonList(2), 1, true));
+        given(this.owners.findByIdIn(Collections.singletonList(2))).willReturn(Collections.singletonList(owner));
+        mockMvc.perform(get("/owners/search").param("q", "davis sun"))
+            .andExpect(status().isOk())
+            .andExpect(model().attribute("selections", Collections.singletonList(owner)))
+            .andExpect(model().attribute("total", 1))
+            .andExpect(model().attribute("totalExact", true))
+            .andExpect(view().name("owners/searchOwners"));
+    }
+
+    @Test
+    public void testTypeahead() throws Exception {
+        given(this.typeahead.suggest("dav", 10)).willReturn(Arrays.asList(
+            new OwnerSuggestion(2, "Betty", "Davis"), new OwnerSuggestion(4, "Harold", "Davis")));
+        mockMvc.perform(get("/owners/typeahead").param("q", "dav").accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$[0].id").value(2))
+            .andExpect(jsonPath("$[1].firstName").value("Harold"));
+    }
+
+}
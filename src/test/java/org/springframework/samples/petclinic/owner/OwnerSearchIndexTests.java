@@ -0,0 +1,136 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.Arrays;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+
+/**
+ * Test class for {@link OwnerSearchIndex}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class OwnerSearchIndexTests {
+
+    @Mock
+    private OwnerRepository owners;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OwnerSearchIndex index;
+
+    @Before
+    public void setup() {
+        given(this.owners.streamAllForSearch()).willReturn(Stream.of(
+            new OwnerSearchRow(1, "George", "Franklin", "Madison", "6085551023", "Leo", "cat"),
+            new OwnerSearchRow(2, "Betty", "Davis", "Sun Prairie", "6085551749", "Basil", "hamster"),
+            new OwnerSearchRow(4, "Harold", "Davis", "Windsor", "6085553198", "Iggy", "lizard"),
+            new OwnerSearchRow(6, "Jean", "Coleman", "Monona", "6085552654", "Samantha", "cat"),
+            new OwnerSearchRow(6, "Jean", "Coleman", "Monona", "6085552654", "Max", "cat")));
+        this.index = new OwnerSearchIndex(this.owners, this.transactionManager);
+        this.index.rebuild();
+    }
+
+    @After
+    public void shutdown() {
+        this.index.shutdown();
+    }
+
+    @Test
+    public void shouldMatchWordPrefixesOfAnyField() {
+        assertThat(this.index.search("davis", 10).getIds()).containsExactly(2, 4);
+        assertThat(this.index.search("SUN prai", 10).getIds()).containsExactly(2);
+        assertThat(this.index.search("max", 10).getIds()).containsExactly(6);
+        assertThat(this.index.search("cat", 10).getIds()).containsExactly(1, 6);
+        assertThat(this.index.search("davis lizard", 10).getIds()).containsExactly(4);
+        assertThat(this.index.search("davis cat", 10).getIds()).isEmpty();
+    }
+
+    @Test
+    public void shouldMatchTelephoneFragments() {
+        assertThat(this.index.search("5551", 10).getIds()).containsExactly(1, 2);
+        assertThat(this.index.search("3198", 10).getIds()).containsExactly(4);
+        assertThat(this.index.search("608", 10).getTotal()).isEqualTo(4);
+    }
+
+    @Test
+    public void shouldLimitResultsButCountAllMatches() {
+        OwnerSearchIndex.Result result = this.index.search("6085", 2);
+        assertThat(result.getIds()).containsExactly(1, 2);
+        assertThat(result.getTotal()).isEqualTo(4);
+        assertThat(result.isTotalExact()).isTrue();
+        assertThat(this.index.search("  ", 10).getTotal()).isZero();
+    }
+
+    @Test
+    public void shouldStopCountingPastTheCountLimit() {
+        given(this.owners.streamAllForSearch()).willReturn(IntStream.rangeClosed(1, 3000)
+            .mapToObj(id -> new OwnerSearchRow(id, "Jean", id % 2 == 0 ? "Coleman" : "Davis", "Monona",
+                String.format("608555%04d", id), "Max", "cat")));
+        this.index.rebuild();
+
+        OwnerSearchIndex.Result result = this.index.search("cat", 3);
+        assertThat(result.getIds()).containsExactly(1, 2, 3);
+        assertThat(result.getTotal()).isEqualTo(OwnerSearchIndex.COUNT_LIMIT);
+        assertThat(result.isTotalExact()).isFalse();
+        result = this.index.search("coleman 2999", 10);
+        assertThat(result.getIds()).isEmpty();
+        assertThat(result.isTotalExact()).isTrue();
+        result = this.index.search("coleman 5552", 10);
+        assertThat(result.getIds()).containsExactly(2000, 2002, 2004, 2006, 2008, 2010, 2012, 2014, 2016, 2018);
+        assertThat(result.getTotal()).isEqualTo(500);
+        assertThat(result.isTotalExact()).isTrue();
+    }
+
+    @Test
+    public void shouldReindexChangedOwners() {
+        given(this.owners.findSearchRowsByIdIn(new TreeSet<>(Arrays.asList(4, 6, 11)))).willReturn(Arrays.asList(
+            new OwnerSearchRow(4, "Harold", "Davies", "Windsor", "6085553198", "Iggy", "lizard"),
+            new OwnerSearchRow(11, "Jane", "Davis", "Verona", "6085550000", "Rex", "dog")));
+        new OwnerSearchIndex.ChangeListener().changed(owner(4));
+        new OwnerSearchIndex.ChangeListener().changed(owner(6));
+        new OwnerSearchIndex.ChangeListener().changed(owner(11));
+        assertThat(this.index.search("davis", 10).getIds()).containsExactly(2, 4);
+
+        this.index.applyChanges();
+
+        assertThat(this.index.search("davis", 10).getIds()).containsExactly(2, 11);
+        assertThat(this.index.search("davies", 10).getIds()).containsExactly(4);
+        assertThat(this.index.search("verona rex", 10).getIds()).containsExactly(11);
+        assertThat(this.index.search("cat", 10).getIds()).containsExactly(1);
+        assertThat(this.index.search("608", 10).getTotal()).isEqualTo(4);
+    }
+
+    private Owner owner(int id) {
+        Owner owner = new Owner();
+        owner.setId(id);
+        return owner;
+    }
+
+}
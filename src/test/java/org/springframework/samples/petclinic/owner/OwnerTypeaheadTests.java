@@ -0,0 +1,111 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+
+/**
+ * Test class for {@link OwnerTypeahead}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class OwnerTypeaheadTests {
+
+    @Mock
+    private OwnerRepository owners;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OwnerTypeahead typeahead;
+
+    @Before
+    public void setup() {
+        given(this.owners.streamAllSuggestions()).willReturn(Stream.of(
+            new OwnerSuggestion(1, "George", "Franklin"),
+            new OwnerSuggestion(2, "Betty", "Davis"),
+            new OwnerSuggestion(3, "Eduardo", "Rodriquez"),
+            new OwnerSuggestion(4, "Harold", "Davis"),
+            new OwnerSuggestion(5, "Peter", "McTavish"),
+            new OwnerSuggestion(7, "Jeff", "Black"),
+            new OwnerSuggestion(8, "Maria", "Escobito"),
+            new OwnerSuggestion(9, "David", "Schroeder"),
+            new OwnerSuggestion(10, "Carlos", "Estaban")));
+        this.typeahead = new OwnerTypeahead(this.owners, this.transactionManager);
+        this.typeahead.rebuild();
+    }
+
+    @After
+    public void shutdown() {
+        this.typeahead.shutdown();
+    }
+
+    @Test
+    public void shouldSuggestByFirstOrLastNamePrefix() {
+        assertThat(this.typeahead.suggest("Dav", 10)).extracting(OwnerSuggestion::getId).containsExactly(2, 4, 9);
+        assertThat(this.typeahead.suggest("es", 10)).extracting(OwnerSuggestion::getId).containsExactly(8, 10);
+        assertThat(this.typeahead.suggest("davis h", 10)).extracting(OwnerSuggestion::getId).containsExactly(4);
+        assertThat(this.typeahead.suggest("x", 10)).isEmpty();
+        assertThat(this.typeahead.suggest("", 10)).isEmpty();
+    }
+
+    @Test
+    public void shouldBoundSuggestions() {
+        assertThat(this.typeahead.suggest("d", 2)).hasSize(2);
+    }
+
+    @Test
+    public void shouldApplySavedOwnersWithoutRebuilding() {
+        Owner owner = new Owner();
+        owner.setId(4);
+        owner.setFirstName("Harold");
+        owner.setLastName("Daviss");
+        new OwnerTypeahead.ChangeListener().saved(owner);
+        Owner added = new Owner();
+        added.setId(11);
+        added.setFirstName("Jane");
+        added.setLastName("Davenport");
+        new OwnerTypeahead.ChangeListener().saved(added);
+
+        assertThat(this.typeahead.suggest("davis", 10)).extracting(OwnerSuggestion::getLastName)
+            .containsExactly("Davis", "Daviss");
+        assertThat(this.typeahead.suggest("dav", 10)).extracting(OwnerSuggestion::getId).containsExactly(11, 2, 4, 9);
+    }
+
+    @Test
+    public void trieShouldResolvePrefixesToRanges() {
+        OwnerTypeahead.RadixTrie trie = new OwnerTypeahead.RadixTrie(
+            new String[]{"dav", "david", "davis", "davis", "escobito", "estaban"}, new int[]{1, 2, 3, 4, 5, 6});
+        assertThat(trie.find("d").size()).isEqualTo(4);
+        assertThat(trie.find("davi").size()).isEqualTo(3);
+        assertThat(trie.find("davis").size()).isEqualTo(2);
+        assertThat(trie.find("e").size()).isEqualTo(2);
+        assertThat(trie.find("esc").size()).isEqualTo(1);
+        assertThat(trie.find("davit")).isNull();
+        assertThat(trie.find("f")).isNull();
+    }
+
+}
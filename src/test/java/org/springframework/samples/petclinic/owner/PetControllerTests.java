@@ -1,6 +1,10 @@
 package org.springframework.samples.petclinic.owner;
 
+import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
@@ -16,6 +20,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.FilterType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.samples.petclinic.owner.Owner;
 import org.springframework.samples.petclinic.owner.OwnerRepository;
 import org.springframework.samples.petclinic.owner.Pet;
@@ -23,6 +28,7 @@ import org.springframework.samples.petclinic.owner.PetController;
 import org.springframework.samples.petclinic.owner.PetRepository;
 import org.springframework.samples.petclinic.owner.PetType;
 import org.springframework.samples.petclinic.owner.PetTypeFormatter;
+import org.springframework.samples.petclinic.owner.PetTypeRegistry;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 
@@ -34,7 +40,7 @@ import org.springframework.test.web.servlet.MockMvc;
 @RunWith(SpringRunner.class)
 @WebMvcTest(value = PetController.class,
     includeFilters = @ComponentScan.Filter(
-                            value = PetTypeFormatter.class,
+                            value = {PetTypeFormatter.class, PetTypeRegistry.class},
                             type = FilterType.ASSIGNABLE_TYPE))
 public class PetControllerTests {
 
@@ -51,12 +57,16 @@ public class PetControllerTests {
     @MockBean
     private OwnerRepository owners;
 
+    @Autowired
+    private PetTypeRegistry types;
+
     @Before
     public void setup() {
         PetType cat = new PetType();
         cat.setId(3);
         cat.setName("hamster");
         given(this.pets.findPetTypes()).willReturn(Lists.newArrayList(cat));
+        this.types.refresh();
         given(this.owners.findById(TEST_OWNER_ID)).willReturn(new Owner());
         given(this.pets.findById(TEST_PET_ID)).willReturn(new Pet());
 
@@ -109,6 +119,7 @@ public class PetControllerTests {
             .param("name", "Betty")
             .param("type", "hamster")
             .param("birthDate", "2015-02-12")
+            .param("version", "0")
         )
             .andExpect(status().is3xxRedirection())
             .andExpect(view().name("redirect:/owners/{ownerId}"));
@@ -126,4 +137,26 @@ public class PetControllerTests {
             .andExpect(view().name("pets/createOrUpdatePetForm"));
     }
 
+    @Test
+    public void testProcessUpdateFormConflict() throws Exception {
+        Pet saved = new Pet();
+        saved.setId(TEST_PET_ID);
+        saved.setName("Betty");
+        saved.setVersion(1);
+        given(this.pets.findById(TEST_PET_ID)).willReturn(saved);
+        willThrow(new ObjectOptimisticLockingFailureException(Pet.class, TEST_PET_ID))
+            .given(this.pets).save(any(Pet.class));
+        mockMvc.perform(post("/owners/{ownerId}/pets/{petId}/edit", TEST_OWNER_ID, TEST_PET_ID)
+            .param("name", "Bettina")
+            .param("type", "hamster")
+            .param("birthDate", "2015-02-12")
+            .param("version", "0")
+        )
+            .andExpect(status().isOk())
+            .andExpect(model().attributeExists("conflict"))
+            .andExpect(model().attribute("pet", hasProperty("version", is(1))))
+            .andExpect(model().attribute("pet", hasProperty("name", is("Bettina"))))
+            .andExpect(view().name("pets/createOrUpdatePetForm"));
+    }
+
 }
@@ -30,7 +30,7 @@ public class PetTypeFormatterTests {
 
     @Before
     public void setup() {
-        this.petTypeFormatter = new PetTypeFormatter(pets);
+        this.petTypeFormatter = new PetTypeFormatter(new PetTypeRegistry(pets));
     }
 
     @Test
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for {@link PetTypeRegistry}, outside of a test transaction so that writes commit, with the
+ * second-level cache disabled so that every reload goes to the database.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+    "spring.jpa.properties.hibernate.cache.use_query_cache=false"})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class PetTypeRegistryTests {
+
+    @Autowired
+    private PetRepository pets;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private PetTypeRegistry registry;
+
+    private Statistics statistics;
+
+    @Before
+    public void setup() {
+        this.registry = new PetTypeRegistry(this.pets);
+        this.registry.refresh();
+        this.statistics = this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        this.statistics.clear();
+    }
+
+    @Test
+    public void lookupsIssueNoStatements() {
+        assertThat(this.registry.findAll()).extracting(PetType::getName).startsWith("bird", "cat", "dog");
+        assertThat(this.registry.findByName("cat").getId()).isEqualTo(1);
+        assertThat(this.registry.findById(2).getName()).isEqualTo("dog");
+        assertThat(this.registry.findByName("unicorn")).isNull();
+        assertThat(this.statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    public void committedInsertIsSeenOnTheNextLookup() {
+        PetType iguana = new PetType();
+        iguana.setName("iguana");
+        inTransaction(() -> this.entityManager.persist(iguana));
+        this.statistics.clear();
+        try {
+            assertThat(this.registry.findByName("iguana").getId()).isEqualTo(iguana.getId());
+            assertThat(this.registry.findById(iguana.getId()).getName()).isEqualTo("iguana");
+            // the insert is read back once, then the lookups are served from the new snapshot
+            assertThat(this.statistics.getPrepareStatementCount()).isEqualTo(1);
+        } finally {
+            inTransaction(() -> this.entityManager.remove(this.entityManager.find(PetType.class, iguana.getId())));
+        }
+        assertThat(this.registry.findByName("iguana")).isNull();
+    }
+
+    @Test
+    public void committedRenameIsSeenOnTheNextLookup() {
+        inTransaction(() -> this.entityManager.find(PetType.class, 3).setName("gecko"));
+        try {
+            assertThat(this.registry.findById(3).getName()).isEqualTo("gecko");
+            assertThat(this.registry.findByName("gecko").getId()).isEqualTo(3);
+            assertThat(this.registry.findByName("lizard")).isNull();
+        } finally {
+            inTransaction(() -> this.entityManager.find(PetType.class, 3).setName("lizard"));
+        }
+        assertThat(this.registry.findById(3).getName()).isEqualTo("lizard");
+    }
+
+    @Test
+    public void rolledBackChangeIsNotSeen() {
+        new TransactionTemplate(this.transactionManager).execute(status -> {
+            this.entityManager.find(PetType.class, 3).setName("gecko");
+            this.entityManager.flush();
+            status.setRollbackOnly();
+            return null;
+        });
+        this.statistics.clear();
+
+        assertThat(this.registry.findById(3).getName()).isEqualTo("lizard");
+        assertThat(this.statistics.getPrepareStatementCount()).isZero();
+    }
+
+    private void inTransaction(Runnable work) {
+        new TransactionTemplate(this.transactionManager).execute(status -> {
+            work.run();
+            return null;
+        });
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.persistence.EntityManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.samples.petclinic.visit.VisitRepository;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for {@link VisitBulkImporter}
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class VisitBulkImporterTests {
+
+    @Autowired
+    private PetRepository pets;
+
+    @Autowired
+    private VisitRepository visits;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private VisitBulkImporter importer;
+
+    @Before
+    public void setup() {
+        LocalValidatorFactoryBean validator = new LocalValidatorFactoryBean();
+        validator.afterPropertiesSet();
+        this.importer = new VisitBulkImporter(pets, visits, entityManager, transactionManager,
+            Jackson2ObjectMapperBuilder.json().build(), validator);
+    }
+
+    @Test
+    public void shouldImportJsonArray() throws Exception {
+        int found = this.visits.findByPetId(1).size();
+        VisitImportResult result = importVisits("[" +
+            "{\"petId\": 1, \"date\": \"2019-01-01\", \"description\": \"checkup\"}," +
+            "{\"petId\": 1, \"date\": \"2019-01-02\", \"description\": \"shots\"}]");
+        assertThat(result.getReceived()).isEqualTo(2);
+        assertThat(result.getInserted()).isEqualTo(2);
+        assertThat(this.visits.findByPetId(1)).hasSize(found + 2);
+    }
+
+    @Test
+    public void shouldImportNdjsonAndRejectInvalidVisits() throws Exception {
+        VisitImportResult result = importVisits(
+            "{\"petId\": 2, \"date\": \"2019-01-01\", \"description\": \"checkup\"}\n" +
+            "{\"petId\": 2, \"date\": \"2019-01-01\", \"description\": \"\"}\n" +
+            "{\"petId\": 9999, \"date\": \"2019-01-01\", \"description\": \"checkup\"}\n" +
+            "{\"petId\": 2, \"date\": \"not a date\", \"description\": \"checkup\"}\n");
+        assertThat(result.getReceived()).isEqualTo(4);
+        assertThat(result.getInserted()).isEqualTo(1);
+        assertThat(result.getRejected()).isEqualTo(3);
+        assertThat(result.getRejections()).extracting(VisitImportResult.Rejection::getIndex)
+            .containsExactlyInAnyOrder(1, 2, 3);
+    }
+
+    private VisitImportResult importVisits(String body) throws Exception {
+        return this.importer.importVisits(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+}
@@ -1,21 +1,33 @@
 package org.springframework.samples.petclinic.owner;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
 
+import java.util.Collections;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.samples.petclinic.owner.Pet;
 import org.springframework.samples.petclinic.owner.PetRepository;
 import org.springframework.samples.petclinic.owner.VisitController;
+import org.springframework.samples.petclinic.visit.Visit;
 import org.springframework.samples.petclinic.visit.VisitRepository;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
@@ -52,6 +64,30 @@ public class VisitControllerTests {
             .andExpect(view().name("pets/createOrUpdateVisitForm"));
     }
 
+    @Test
+    public void testInitNewVisitFormLoadsNoVisits() throws Exception {
+        mockMvc.perform(get("/owners/*/pets/{petId}/visits/new", TEST_PET_ID))
+            .andExpect(status().isOk());
+        verify(this.visits, never()).findByPetId(any());
+        verify(this.visits, never()).findPageByPetId(any(), any());
+    }
+
+    @Test
+    public void testShowVisitHistory() throws Exception {
+        Visit visit = new Visit();
+        visit.setDescription("rabies shot");
+        given(this.visits.findPageByPetId(eq(TEST_PET_ID), any(Pageable.class)))
+            .willReturn(new PageImpl<>(Collections.singletonList(visit), PageRequest.of(1, 1), 3));
+
+        mockMvc.perform(get("/owners/1/pets/{petId}/visits", TEST_PET_ID).param("page", "1"))
+            .andExpect(status().isOk())
+            .andExpect(model().attributeExists("visits"))
+            .andExpect(content().string(containsString("rabies shot")))
+            .andExpect(content().string(containsString("Page 2 of 3")))
+            .andExpect(view().name("pets/visitHistory"));
+        verify(this.visits).findPageByPetId(TEST_PET_ID, PageRequest.of(1, 20));
+    }
+
     @Test
     public void testProcessNewVisitFormSuccess() throws Exception {
         mockMvc.perform(post("/owners/*/pets/{petId}/visits/new", TEST_PET_ID)
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.samples.petclinic.visit.Visit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for {@link VisitLog}
+ */
+public class VisitLogTests {
+
+    private static final int CAPACITY = 4096;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file;
+
+    private VisitLog log;
+
+    @Before
+    public void setup() throws Exception {
+        this.file = this.folder.getRoot().toPath().resolve("visits.log");
+        this.log = new VisitLog(this.file, CAPACITY, false);
+    }
+
+    @After
+    public void close() throws Exception {
+        this.log.close();
+    }
+
+    @Test
+    public void shouldTakeVisitsInOrderOnce() throws Exception {
+        this.log.append(1, visit(7, "rabies shot"), 0, TimeUnit.MILLISECONDS);
+        this.log.append(1, visit(8, "spayed"), 0, TimeUnit.MILLISECONDS);
+        this.log.append(2, visit(9, "neutered"), 0, TimeUnit.MILLISECONDS);
+
+        List<VisitLog.Entry> first = this.log.take(2, 0, TimeUnit.MILLISECONDS);
+        List<VisitLog.Entry> second = this.log.take(2, 0, TimeUnit.MILLISECONDS);
+
+        assertThat(first).extracting(entry -> entry.description).containsExactly("rabies shot", "spayed");
+        assertThat(second).extracting(entry -> entry.sequence).containsExactly(3L);
+        assertThat(second.get(0).toVisit().getPetId()).isEqualTo(9);
+        assertThat(second.get(0).toVisit().getDate()).isEqualTo(LocalDate.of(2019, 1, 10));
+        assertThat(this.log.take(2, 0, TimeUnit.MILLISECONDS)).isEmpty();
+    }
+
+    @Test
+    public void shouldRefuseVisitsWhenFullUntilReleased() throws Exception {
+        int appended = 0;
+        while (this.log.append(1, visit(1, "checkup"), 0, TimeUnit.MILLISECONDS) != null) {
+            appended++;
+        }
+        assertThat(appended).isGreaterThan(1);
+
+        List<VisitLog.Entry> taken = this.log.take(1, 0, TimeUnit.MILLISECONDS);
+        assertThat(this.log.append(1, visit(1, "checkup"), 0, TimeUnit.MILLISECONDS)).isNull();
+        this.log.release(taken.get(0));
+        assertThat(this.log.append(1, visit(1, "checkup"), 0, TimeUnit.MILLISECONDS)).isNotNull();
+    }
+
+    @Test
+    public void shouldWrapAroundTheEndOfTheFile() throws Exception {
+        long released = 0;
+        for (int i = 0; i < 500; i++) {
+            this.log.append(1, visit(i, "visit " + i), 0, TimeUnit.MILLISECONDS);
+            VisitLog.Entry entry = this.log.take(1, 0, TimeUnit.MILLISECONDS).get(0);
+            assertThat(entry.sequence).isEqualTo(released + 1);
+            assertThat(entry.description).isEqualTo("visit " + i);
+            this.log.release(entry);
+            released = entry.sequence;
+        }
+        assertThat(this.log.size()).isZero();
+    }
+
+    @Test
+    public void shouldRecoverUnreleasedVisitsAfterReopening() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            this.log.append(1, visit(i, "visit " + i), 0, TimeUnit.MILLISECONDS);
+        }
+        this.log.release(this.log.take(30, 0, TimeUnit.MILLISECONDS).get(29));
+        this.log.append(1, visit(50, "visit 50"), 0, TimeUnit.MILLISECONDS);
+        this.log.close();
+
+        this.log = new VisitLog(this.file, CAPACITY, false);
+
+        assertThat(this.log.unreleased()).extracting(entry -> entry.sequence)
+            .containsExactly(31L, 32L, 33L, 34L, 35L, 36L, 37L, 38L, 39L, 40L, 41L, 42L, 43L, 44L, 45L, 46L, 47L,
+                48L, 49L, 50L, 51L);
+        assertThat(this.log.append(1, visit(1, "next"), 0, TimeUnit.MILLISECONDS).sequence).isEqualTo(52L);
+    }
+
+    @Test
+    public void shouldStopRecoveringAtATornVisit() throws Exception {
+        this.log.append(1, visit(1, "complete"), 0, TimeUnit.MILLISECONDS);
+        VisitLog.Entry torn = this.log.append(1, visit(2, "torn"), 0, TimeUnit.MILLISECONDS);
+        this.log.close();
+        try (RandomAccessFile raf = new RandomAccessFile(this.file.toFile(), "rw")) {
+            raf.seek(VisitLog.HEADER_SIZE + torn.end - 1);
+            raf.write('x');
+        }
+
+        this.log = new VisitLog(this.file, CAPACITY, false);
+
+        assertThat(this.log.unreleased()).extracting(entry -> entry.description).containsExactly("complete");
+        assertThat(this.log.append(1, visit(3, "next"), 0, TimeUnit.MILLISECONDS).sequence).isEqualTo(2L);
+    }
+
+    @Test
+    public void shouldNumberAfterAReleasedCheckpoint() throws Exception {
+        this.log.append(1, visit(1, "stored"), 0, TimeUnit.MILLISECONDS);
+        this.log.append(1, visit(2, "not stored"), 0, TimeUnit.MILLISECONDS);
+
+        this.log.releaseThrough(1);
+        assertThat(this.log.unreleased()).extracting(entry -> entry.sequence).containsExactly(2L);
+
+        this.log.release(this.log.take(1, 0, TimeUnit.MILLISECONDS).get(0));
+        this.log.releaseThrough(100);
+        assertThat(this.log.append(1, visit(3, "next"), 0, TimeUnit.MILLISECONDS).sequence).isEqualTo(101L);
+    }
+
+    private static Visit visit(int petId, String description) {
+        Visit visit = new Visit();
+        visit.setPetId(petId);
+        visit.setDate(LocalDate.of(2019, 1, 1 + petId % 28));
+        visit.setDescription(description);
+        return visit;
+    }
+
+}
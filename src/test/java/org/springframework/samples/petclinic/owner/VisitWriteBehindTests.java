@@ -0,0 +1,128 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.owner;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.system.VisitWriteBehindProperties;
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.samples.petclinic.visit.VisitRepository;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for {@link VisitWriteBehind}
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class VisitWriteBehindTests {
+
+    private static final String NAME = "write-behind-tests";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Autowired
+    private VisitRepository visits;
+
+    @Autowired
+    private PetRepository pets;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private VisitWriteBehindProperties properties;
+
+    @Before
+    public void setup() {
+        this.properties = new VisitWriteBehindProperties();
+        this.properties.setDirectory(this.folder.getRoot().getPath());
+        this.properties.setName(NAME);
+        this.properties.setCapacity(DataSize.ofKilobytes(64));
+        this.properties.setFsync(false);
+    }
+
+    @After
+    public void cleanup() {
+        this.jdbc.update("DELETE FROM visits WHERE description LIKE 'write-behind %'");
+        this.jdbc.update("DELETE FROM write_behind_checkpoints WHERE name = ?", NAME);
+    }
+
+    @Test
+    public void shouldDropAVisitTheDatabaseRefusesAndWriteTheOthers() throws Exception {
+        Path file = this.folder.getRoot().toPath().resolve(NAME + ".log");
+        try (VisitLog log = new VisitLog(file, (int) this.properties.getCapacity().toBytes(), false)) {
+            log.append(6, visit(7, "write-behind before"), 0, TimeUnit.MILLISECONDS);
+            log.append(6, visit(7, "write-behind " + String.join("", Collections.nCopies(300, "x"))), 0,
+                TimeUnit.MILLISECONDS);
+            log.append(6, visit(8, "write-behind after"), 0, TimeUnit.MILLISECONDS);
+        }
+
+        // the three visits are replayed in a single batch, which the database refuses as a whole
+        VisitWriteBehind writeBehind = new VisitWriteBehind(this.properties, this.visits, this.pets,
+            this.entityManager, this.transactionManager, this.jdbc, null);
+        writeBehind.start();
+        try {
+            for (int i = 0; i < 100 && writeBehind.hasPending(6); i++) {
+                Thread.sleep(100);
+            }
+            assertThat(writeBehind.hasPending(6)).isFalse();
+        } finally {
+            writeBehind.stop();
+        }
+
+        assertThat(this.jdbc.queryForList("SELECT description FROM visits WHERE description LIKE 'write-behind %' "
+            + "ORDER BY id", String.class)).containsExactly("write-behind before", "write-behind after");
+        assertThat(this.jdbc.queryForObject("SELECT last_sequence FROM write_behind_checkpoints WHERE name = ?",
+            Long.class, NAME)).isEqualTo(3L);
+        try (VisitLog log = new VisitLog(file, (int) this.properties.getCapacity().toBytes(), false)) {
+            assertThat(log.unreleased()).isEmpty();
+        }
+    }
+
+    private static Visit visit(int petId, String description) {
+        Visit visit = new Visit();
+        visit.setPetId(petId);
+        visit.setDate(LocalDate.of(2019, 1, 10));
+        visit.setDescription(description);
+        return visit;
+    }
+
+}
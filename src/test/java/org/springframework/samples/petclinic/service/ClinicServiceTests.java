@@ -18,13 +18,20 @@ package org.springframework.samples.petclinic.service;
 
 import java.time.LocalDate;
 import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.samples.petclinic.owner.OwnerExportRow;
+import org.springframework.samples.petclinic.owner.OwnerPage;
 import org.springframework.samples.petclinic.owner.OwnerRepository;
 import org.springframework.samples.petclinic.owner.Pet;
 import org.springframework.samples.petclinic.owner.PetRepository;
@@ -37,6 +44,7 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
  * Integration test of the Service and the Repository layer.
@@ -84,6 +92,9 @@ public class ClinicServiceTests {
     @Autowired
     protected VetRepository vets;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
     @Test
     public void shouldFindOwnersByLastName() {
         Collection<Owner> owners = this.owners.findByLastName("Davis");
@@ -93,6 +104,49 @@ public class ClinicServiceTests {
         assertThat(owners.isEmpty()).isTrue();
     }
 
+    @Test
+    public void shouldFindOwnersByLastNameIgnoringCase() {
+        assertThat(this.owners.findByLastName("dAV")).extracting(Owner::getLastName).containsOnly("Davis");
+        assertThat(this.owners.findPageByLastName("mct", null, null, 5).getContent())
+            .extracting(Owner::getLastName).containsExactly("McTavish");
+    }
+
+    @Test
+    public void shouldPageOwnersByLastName() {
+        OwnerPage first = this.owners.findPageByLastName("", null, null, 3);
+        assertThat(first.getContent()).extracting(Owner::getLastName).containsExactly("Black", "Coleman", "Davis");
+        assertThat(first.hasPrevious()).isFalse();
+        assertThat(first.hasNext()).isTrue();
+
+        OwnerPage second = this.owners.findPageByLastName("", first.getLast().getLastName(), first.getLast().getId(), 3);
+        assertThat(second.getContent()).extracting(Owner::getLastName).containsExactly("Davis", "Escobito", "Estaban");
+        assertThat(second.hasPrevious()).isTrue();
+
+        OwnerPage back = this.owners.findPageByLastNameBefore("", second.getFirst().getLastName(), second.getFirst().getId(), 3);
+        assertThat(back.getContent()).extracting(Owner::getId)
+            .containsExactly(first.getContent().stream().map(Owner::getId).toArray(Integer[]::new));
+        assertThat(back.hasPrevious()).isFalse();
+
+        OwnerPage davis = this.owners.findPageByLastName("Davis", null, null, 3);
+        assertThat(davis.getSize()).isEqualTo(2);
+        assertThat(davis.hasNext()).isFalse();
+    }
+
+    @Test
+    @Transactional(readOnly = true)
+    public void shouldStreamOwnersPetsAndVisitsForExport() {
+        List<OwnerExportRow> rows;
+        try (Stream<OwnerExportRow> stream = this.owners.streamAllForExport()) {
+            rows = stream.collect(Collectors.toList());
+        }
+        // 10 owners, 13 pets, 4 visits over 2 pets: one row per visit or visit-less pet
+        assertThat(rows).hasSize(15);
+        assertThat(rows.get(0).getOwnerId()).isEqualTo(1);
+        assertThat(rows.get(0).getPetType()).isEqualTo("cat");
+        assertThat(rows).filteredOn(row -> Integer.valueOf(7).equals(row.getPetId())).hasSize(2)
+            .allMatch(row -> row.getVisitId() != null);
+    }
+
     @Test
     public void shouldFindSingleOwnerWithPet() {
         Owner owner = this.owners.findById(1);
@@ -136,6 +190,28 @@ public class ClinicServiceTests {
         assertThat(owner.getLastName()).isEqualTo(newLastName);
     }
 
+    @Test
+    @Transactional
+    public void shouldRejectOwnerUpdateFromStaleVersion() {
+        Owner owner = this.owners.findById(1);
+        Integer read = owner.getVersion();
+        owner.setCity("Middleton");
+        this.entityManager.flush();
+        assertThat(owner.getVersion()).isEqualTo(read + 1);
+
+        Owner stale = new Owner();
+        stale.setId(1);
+        stale.setVersion(read);
+        stale.setFirstName(owner.getFirstName());
+        stale.setLastName(owner.getLastName());
+        stale.setAddress(owner.getAddress());
+        stale.setCity("Madison");
+        stale.setTelephone(owner.getTelephone());
+        assertThatThrownBy(() -> this.owners.updateDetails(stale))
+            .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThatThrownBy(() -> this.owners.save(stale)).isInstanceOf(OptimisticLockingFailureException.class);
+    }
+
     @Test
     public void shouldFindPetWithCorrectId() {
         Pet pet7 = this.pets.findById(7);
@@ -191,6 +267,27 @@ public class ClinicServiceTests {
         assertThat(pet7.getName()).isEqualTo(newName);
     }
 
+    @Test
+    @Transactional
+    public void shouldChangeOwnerDetailsTagWhenPetsOrVisitsChange() {
+        String initial = this.owners.findDetailsTagById(6);
+        assertThat(initial).isNotNull();
+        assertThat(this.owners.findDetailsTagById(6)).isEqualTo(initial);
+
+        Pet pet7 = this.pets.findById(7);
+        pet7.setName(pet7.getName() + "X");
+        String renamed = this.owners.findDetailsTagById(6);
+        assertThat(renamed).isNotEqualTo(initial);
+
+        Visit visit = new Visit();
+        visit.setDescription("test");
+        pet7.addVisit(visit);
+        this.visits.save(visit);
+        assertThat(this.owners.findDetailsTagById(6)).isNotEqualTo(renamed);
+
+        assertThat(this.owners.findDetailsTagById(-1)).isNull();
+    }
+
     @Test
     public void shouldFindVets() {
         Collection<Vet> vets = this.vets.findAll();
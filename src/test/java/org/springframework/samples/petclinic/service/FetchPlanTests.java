@@ -0,0 +1,222 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnitUtil;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.samples.petclinic.owner.OwnerPage;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.samples.petclinic.owner.Pet;
+import org.springframework.samples.petclinic.owner.PetRepository;
+import org.springframework.samples.petclinic.visit.Visit;
+import org.springframework.samples.petclinic.visit.VisitRepository;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Counts the SQL statements each fetch plan and the owner edit of the repositories issue, with the
+ * second-level cache disabled so that every load goes to the database.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+    "spring.jpa.properties.hibernate.cache.use_query_cache=false"})
+public class FetchPlanTests {
+
+    @Autowired
+    private OwnerRepository owners;
+
+    @Autowired
+    private PetRepository pets;
+
+    @Autowired
+    private VisitRepository visits;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Statistics statistics;
+
+    @Before
+    public void setup() {
+        this.statistics = this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        this.statistics.clear();
+    }
+
+    @Test
+    public void listPlanLoadsOwnersAndPetNamesOnly() {
+        OwnerPage page = this.owners.findPageByLastName("", null, null, 20);
+        PersistenceUnitUtil util = this.entityManagerFactory.getPersistenceUnitUtil();
+        for (Owner owner : page.getContent()) {
+            for (Pet pet : owner.getPets()) {
+                assertThat(pet.getName()).isNotEmpty();
+                assertThat(util.isLoaded(pet, "visits")).isFalse();
+                assertThat(util.isLoaded(pet, "type")).isFalse();
+            }
+        }
+        // one statement to seek the page of ids, one for the owners and their pets
+        assertThat(page.getSize()).isEqualTo(10);
+        assertThat(this.statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void detailsPlanLoadsPetsTypesAndVisitsInTwoQueries() {
+        Owner owner = this.owners.findById(6);
+        int visits = 0;
+        for (Pet pet : owner.getPets()) {
+            assertThat(pet.getType().getName()).isNotEmpty();
+            visits += pet.getVisits().size();
+        }
+        // one statement for the owner, its pets and their types, one for the visits of all pets
+        assertThat(owner.getPets()).hasSize(2);
+        assertThat(visits).isEqualTo(4);
+        assertThat(this.statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void petPlanLoadsTypeAndOwnerButNoVisits() {
+        Pet pet = this.pets.findById(7);
+        assertThat(pet.getType().getName()).isEqualTo("cat");
+        assertThat(pet.getOwner().getLastName()).isEqualTo("Coleman");
+        assertThat(this.entityManagerFactory.getPersistenceUnitUtil().isLoaded(pet, "visits")).isFalse();
+        assertThat(this.statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void visitHistoryPlanReadsOnePageMostRecentFirst() {
+        Page<Visit> first = this.visits.findPageByPetId(7, PageRequest.of(0, 1));
+        // one statement for the page, one to count the visits since the page is full
+        assertThat(first.getContent()).extracting(Visit::getDescription).containsExactly("spayed");
+        assertThat(first.getTotalElements()).isEqualTo(2);
+        assertThat(this.statistics.getPrepareStatementCount()).isEqualTo(2);
+
+        this.statistics.clear();
+        Page<Visit> all = this.visits.findPageByPetId(7, PageRequest.of(0, 5));
+        // a page that is not full needs no count
+        assertThat(all.getContent()).extracting(Visit::getDescription).containsExactly("spayed", "rabies shot");
+        assertThat(all.getTotalElements()).isEqualTo(2);
+        assertThat(this.statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void detailsPageCountsTheVisitsOfAllPetsAndReadsAPagePerPet() {
+        Owner owner = this.owners.findById(6);
+        this.statistics.clear();
+
+        Map<Integer, Page<Visit>> latest = this.visits.findLatestPagesByPetIdIn(
+            owner.getPets().stream().map(Pet::getId).collect(Collectors.toList()), 1);
+        // one statement to count the visits of both pets, one for the latest visit of each
+        assertThat(latest.get(7).getContent()).extracting(Visit::getDescription).containsExactly("spayed");
+        assertThat(latest.get(7).getTotalElements()).isEqualTo(2);
+        assertThat(latest.get(8).getContent()).extracting(Visit::getDescription).containsExactly("neutered");
+        assertThat(latest.get(8).getTotalElements()).isEqualTo(2);
+        assertThat(this.statistics.getPrepareStatementCount()).isEqualTo(3);
+
+        this.statistics.clear();
+        latest = this.visits.findLatestPagesByPetIdIn(Arrays.asList(7, 8, 14), 5);
+        // a pet without visits needs no page
+        assertThat(latest.get(7).getContent()).extracting(Visit::getDescription)
+            .containsExactly("spayed", "rabies shot");
+        assertThat(latest.get(14).getContent()).isEmpty();
+        assertThat(latest.get(14).getTotalElements()).isZero();
+        assertThat(this.statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void visitsWithoutDateComeLast() {
+        Visit undated = new Visit();
+        undated.setPetId(7);
+        undated.setDate(null);
+        undated.setDescription("undated");
+        this.visits.save(undated);
+        this.entityManager.flush();
+
+        assertThat(this.visits.findLatestPagesByPetIdIn(Collections.singletonList(7), 1).get(7).getContent())
+            .extracting(Visit::getDescription).containsExactly("spayed");
+        assertThat(this.visits.findLatestPagesByPetIdIn(Collections.singletonList(7), 5).get(7).getContent())
+            .extracting(Visit::getDescription).containsExactly("spayed", "rabies shot", "undated");
+        assertThat(this.visits.findPageByPetId(7, PageRequest.of(0, 5)).getContent())
+            .extracting(Visit::getDescription).containsExactly("spayed", "rabies shot", "undated");
+    }
+
+    @Test
+    public void ownerEditReadsTheOwnerRowAndUpdatesItOnly() {
+        Owner edited = editOf(this.owners.findRowById(1));
+        edited.setTelephone("6085551024");
+        this.entityManager.clear();
+        this.statistics.clear();
+
+        Owner owner = this.owners.updateDetails(edited);
+        this.entityManager.flush();
+        // one statement to read the owner row, one to update it; pets and visits are never touched
+        assertThat(this.entityManagerFactory.getPersistenceUnitUtil().isLoaded(owner, "pets")).isFalse();
+        assertThat(this.statistics.getEntityLoadCount()).isEqualTo(1);
+        assertThat(this.statistics.getCollectionLoadCount()).isZero();
+        assertThat(this.statistics.getEntityUpdateCount()).isEqualTo(1);
+        assertThat(this.statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void ownerEditWithoutChangesOnlyReadsTheOwnerRow() {
+        Owner edited = editOf(this.owners.findRowById(1));
+        this.entityManager.clear();
+        this.statistics.clear();
+
+        this.owners.updateDetails(edited);
+        this.entityManager.flush();
+        assertThat(this.statistics.getEntityUpdateCount()).isZero();
+        assertThat(this.statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    /**
+     * @return a detached copy of the owner as the edit form would post it
+     */
+    private static Owner editOf(Owner owner) {
+        Owner edited = new Owner();
+        edited.setId(owner.getId());
+        edited.setVersion(owner.getVersion());
+        edited.setFirstName(owner.getFirstName());
+        edited.setLastName(owner.getLastName());
+        edited.setAddress(owner.getAddress());
+        edited.setCity(owner.getCity());
+        edited.setTelephone(owner.getTelephone());
+        return edited;
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for {@link ClinicDataGenerator}
+ */
+@RunWith(SpringRunner.class)
+@JdbcTest
+public class ClinicDataGeneratorTests {
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void shouldGenerateOwnersAndReserveTheirIds() {
+        ClinicDataGenerator generator = new ClinicDataGenerator(this.jdbc, this.transactionManager, 7);
+        generator.setBatchSize(300);
+        generator.generate(1000, 20);
+
+        assertThat(count("SELECT COUNT(*) FROM owners")).isEqualTo(1010);
+        assertThat(count("SELECT COUNT(*) FROM vets")).isEqualTo(26);
+        assertThat(count("SELECT COUNT(*) FROM pets")).isGreaterThan(1000);
+        assertThat(count("SELECT COUNT(*) FROM visits")).isGreaterThan(1000);
+        for (String table : new String[]{"owners", "pets", "visits", "vets", "specialties"}) {
+            assertThat(count("SELECT next_val FROM id_generator WHERE sequence_name = '" + table + "'"))
+                .isGreaterThan(count("SELECT MAX(id) FROM " + table));
+        }
+    }
+
+    @Test
+    public void shouldSkewLastNames() {
+        ClinicDataGenerator generator = new ClinicDataGenerator(this.jdbc, this.transactionManager, 7);
+        generator.generate(1000, 0);
+
+        // with a Zipf distribution over 5000 names the top name takes about 11% of the owners
+        assertThat(count("SELECT COUNT(*) FROM owners WHERE last_name = 'Smith'")).isGreaterThan(50);
+        assertThat(count("SELECT COUNT(DISTINCT last_name) FROM owners")).isGreaterThan(200);
+    }
+
+    private int count(String sql) {
+        return this.jdbc.queryForObject(sql, Integer.class);
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.boot.test.rule.OutputCapture;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.owner.OwnerRepository;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Test class for {@link SlowQueryLoggingDataSource} and {@link RepositoryMetricsPostProcessor}
+ */
+@RunWith(SpringRunner.class)
+@JdbcTest
+public class DataSourceMonitoringTests {
+
+    @Rule
+    public OutputCapture output = new OutputCapture();
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    public void shouldLogStatementsAboveTheThresholdWithTheirParameters() {
+        JdbcTemplate jdbc = new JdbcTemplate(new SlowQueryLoggingDataSource(this.dataSource, Duration.ZERO, true));
+
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM owners WHERE last_name = ? AND id > ?", Integer.class,
+            "Davis", 1)).isEqualTo(2);
+
+        this.output.expect(containsString(
+            "SELECT COUNT(*) FROM owners WHERE last_name = ? AND id > ? [1='Davis', 2=1]"));
+    }
+
+    @Test
+    public void shouldNotLogStatementsBelowTheThreshold() {
+        JdbcTemplate jdbc = new JdbcTemplate(
+            new SlowQueryLoggingDataSource(this.dataSource, Duration.ofMinutes(1), true));
+
+        jdbc.queryForObject("SELECT COUNT(*) FROM owners WHERE last_name = ?", Integer.class, "Davis");
+
+        assertThat(this.output.toString()).doesNotContain("Slow statement");
+    }
+
+    @Test
+    public void shouldCloseTheTargetInItsPlace() throws Exception {
+        HikariDataSource pool = new HikariDataSource();
+
+        new SlowQueryLoggingDataSource(pool, Duration.ofMinutes(1), true).destroy();
+
+        assertThat(pool.isClosed()).isTrue();
+    }
+
+    @Test
+    public void shouldTimeRepositoryCallsPerMethod() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("registry", registry);
+        OwnerRepository target = mock(OwnerRepository.class);
+        given(target.findById(1)).willThrow(new IllegalStateException());
+        OwnerRepository owners = (OwnerRepository) new RepositoryMetricsPostProcessor(
+            beanFactory.getBeanProvider(MeterRegistry.class)).postProcessAfterInitialization(target, "owners");
+
+        owners.findByLastName("Davis");
+        owners.findByLastName("Davis");
+        assertThatThrownBy(() -> owners.findById(1)).isInstanceOf(IllegalStateException.class);
+
+        assertThat(registry.get(RepositoryMetricsPostProcessor.METRIC_NAME).tag("repository", "OwnerRepository")
+            .tag("method", "findByLastName").tag("exception", "None").timer().count()).isEqualTo(2);
+        assertThat(registry.get(RepositoryMetricsPostProcessor.METRIC_NAME).tag("method", "findById")
+            .tag("exception", "IllegalStateException").timer().count()).isEqualTo(1);
+    }
+
+}
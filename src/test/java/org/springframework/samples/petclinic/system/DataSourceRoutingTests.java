@@ -0,0 +1,162 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import javax.servlet.http.Cookie;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.samples.petclinic.owner.Owner;
+import org.springframework.samples.petclinic.vet.Vet;
+import org.springframework.samples.petclinic.vet.VetCatalog;
+import org.springframework.samples.petclinic.vet.VetSnapshot;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Routes between two in-memory HSQLDB databases, a primary and a replica, plus a replica that cannot be reached.
+ * The replica is told apart by a city that is only changed there, and lags behind every write to the primary.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:hsqldb:mem:routing-primary",
+    "spring.datasource.username=sa",
+    "petclinic.datasource.replicas[0].url=jdbc:hsqldb:mem:routing-replica",
+    "petclinic.datasource.replicas[0].username=sa",
+    "petclinic.datasource.replicas[0].initialize=true",
+    "petclinic.datasource.replicas[1].url=jdbc:hsqldb:hsql://localhost:1/unreachable",
+    "petclinic.datasource.replicas[1].username=sa",
+    "petclinic.datasource.read-your-writes-window=1m"})
+public class DataSourceRoutingTests {
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ReadYourWritesFilter readYourWritesFilter;
+
+    @Autowired
+    private VetCatalog vets;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Before
+    public void changeReplicaOnly() {
+        new JdbcTemplate(new DriverManagerDataSource("jdbc:hsqldb:mem:routing-replica", "sa", ""))
+            .update("UPDATE owners SET city = 'Replica' WHERE id = 1");
+    }
+
+    @Test
+    public void readOnlyTransactionsReadFromReachableReplicas() {
+        for (int i = 0; i < 4; i++) {
+            assertThat(city(true)).isEqualTo("Replica");
+        }
+    }
+
+    @Test
+    public void everythingElseGoesToThePrimary() {
+        assertThat(city(false)).isEqualTo("Madison");
+        assertThat(this.jdbc.queryForObject("SELECT city FROM owners WHERE id = 1", String.class))
+            .isEqualTo("Madison");
+    }
+
+    @Test
+    public void readsFollowWritesToThePrimary() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        this.readYourWritesFilter.doFilter(new MockHttpServletRequest(), response, (request, ignored) -> {
+            assertThat(city(true)).isEqualTo("Replica");
+            write();
+            assertThat(city(true)).isEqualTo("Madison");
+        });
+        Cookie lastWrite = response.getCookie(ReadYourWritesFilter.COOKIE);
+        assertThat(lastWrite).isNotNull();
+
+        MockHttpServletRequest next = new MockHttpServletRequest();
+        next.setCookies(lastWrite);
+        this.readYourWritesFilter.doFilter(next, new MockHttpServletResponse(),
+            (request, ignored) -> assertThat(city(true)).isEqualTo("Madison"));
+        this.readYourWritesFilter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(),
+            (request, ignored) -> assertThat(city(true)).isEqualTo("Replica"));
+    }
+
+    @Test
+    public void cachesAreRebuiltFromThePrimary() {
+        renameVet(1, "Primary");
+        try {
+            assertThat(this.vets.current().getVetList()).extracting(VetSnapshot.VetView::getLastName)
+                .contains("Primary").doesNotContain("Carter");
+        } finally {
+            renameVet(1, "Carter");
+        }
+    }
+
+    @Test
+    public void replicaReadsAreNotCached() {
+        this.entityManagerFactory.getCache().evictAll();
+        assertThat(ownerCity(true)).isEqualTo("Replica");
+        assertThat(this.entityManagerFactory.getCache().contains(Owner.class, 1)).isFalse();
+
+        assertThat(ownerCity(false)).isEqualTo("Madison");
+        assertThat(this.entityManagerFactory.getCache().contains(Owner.class, 1)).isTrue();
+        assertThat(ownerCity(true)).isEqualTo("Madison");
+    }
+
+    private void renameVet(int id, String lastName) {
+        new TransactionTemplate(this.transactionManager).execute(status -> {
+            this.entityManager.find(Vet.class, id).setLastName(lastName);
+            return null;
+        });
+    }
+
+    private String city(boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(this.transactionManager);
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(
+            status -> this.jdbc.queryForObject("SELECT city FROM owners WHERE id = 1", String.class));
+    }
+
+    private String ownerCity(boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(this.transactionManager);
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status -> this.entityManager.find(Owner.class, 1).getCity());
+    }
+
+    private void write() {
+        new TransactionTemplate(this.transactionManager).execute(
+            status -> this.jdbc.update("UPDATE owners SET telephone = telephone WHERE id = 1"));
+    }
+
+}
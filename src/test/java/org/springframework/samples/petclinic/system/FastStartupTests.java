@@ -0,0 +1,88 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import javax.sql.DataSource;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Starts with the {@code fast-startup} profile on a database whose schema already exists, with a city that the data
+ * script would reset.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:hsqldb:mem:fast-startup",
+    "spring.datasource.username=sa",
+    "petclinic.startup.report=true"})
+@ActiveProfiles("fast-startup")
+public class FastStartupTests {
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @BeforeClass
+    public static void createSchema() {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:hsqldb:mem:fast-startup", "sa", "");
+        DatabasePopulatorUtils.execute(new ResourceDatabasePopulator(new ClassPathResource("db/hsqldb/schema.sql"),
+            new ClassPathResource("db/hsqldb/data.sql")), dataSource);
+        new JdbcTemplate(dataSource).update("UPDATE owners SET city = 'Kept' WHERE id = 1");
+    }
+
+    @Test
+    public void existingSchemaIsNotInitializedAgain() {
+        assertThat(this.jdbc.queryForObject("SELECT city FROM owners WHERE id = 1", String.class)).isEqualTo("Kept");
+    }
+
+    @Test
+    public void missingSchemaIsDetected() throws Exception {
+        assertThat(MissingSchemaInitializer.hasSchema(this.jdbc.getDataSource())).isTrue();
+        assertThat(MissingSchemaInitializer.hasSchema(
+            new DriverManagerDataSource("jdbc:hsqldb:mem:fast-startup-empty", "sa", ""))).isFalse();
+    }
+
+    @Test
+    public void beansOffTheRequestPathAreCreatedOnFirstUse() {
+        assertThat(this.context.getBeanFactory().getBeanDefinition("crashController").isLazyInit()).isTrue();
+        assertThat(this.context.getBeanFactory().containsSingleton("crashController")).isFalse();
+        assertThat(this.context.getBean("crashController")).isNotNull();
+    }
+
+    @Test
+    public void eachPhaseIsTimed() {
+        assertThat(StartupTimeline.latest().getPhases()).containsKeys("jvm", "environment", "context",
+            "bean definitions", "beans", "web server", "ready");
+        assertThat(StartupTimeline.latest().getSlowestBeans()).isNotEmpty();
+    }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.MutableConfiguration;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring5.SpringTemplateEngine;
+import org.thymeleaf.templateresolver.StringTemplateResolver;
+import org.thymeleaf.templateresource.ITemplateResource;
+import org.thymeleaf.templateresource.StringTemplateResource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for {@link FragmentCacheDialect}
+ */
+public class FragmentCacheDialectTests {
+
+    private static final String TEMPLATE = "<div><h2 th:text=\"${title}\">Vets</h2>"
+        + "<table pc:cache=\"${version}\"><tr th:each=\"vet : ${vets}\"><td th:text=\"${vet}\"></td>"
+        + "<td>[[${vet}]]</td></tr></table></div>";
+
+    private final Map<String, String> templates = Collections.singletonMap("vets", TEMPLATE);
+
+    private CacheManager cacheManager;
+
+    private Cache<Object, Object> cache;
+
+    private Context context;
+
+    @Before
+    public void setup() {
+        this.cacheManager = Caching.getCachingProvider().getCacheManager();
+        this.cache = this.cacheManager.createCache(FragmentCacheDialect.CACHE_NAME, new MutableConfiguration<>());
+        this.context = new Context(Locale.ENGLISH, new HashMap<>());
+        this.context.setVariable("title", "Veterinarians");
+        this.context.setVariable("version", 1);
+        this.context.setVariable("vets", Arrays.asList("James Carter", "Helen <Leary>"));
+    }
+
+    @After
+    public void close() {
+        this.cacheManager.destroyCache(FragmentCacheDialect.CACHE_NAME);
+    }
+
+    @Test
+    public void shouldServeTheCachedFragmentWhileTheKeyIsTheSame() {
+        SpringTemplateEngine engine = engine(true);
+        String first = engine.process("vets", this.context);
+
+        this.context.setVariable("title", "Vets");
+        this.context.setVariable("vets", Collections.singletonList("Linda Douglas"));
+        String second = engine.process("vets", this.context);
+
+        assertThat(first).isEqualTo("<div><h2>Veterinarians</h2><table><tr><td>James Carter</td><td>James Carter</td>"
+            + "</tr><tr><td>Helen &lt;Leary&gt;</td><td>Helen &lt;Leary&gt;</td></tr></table></div>");
+        assertThat(second).isEqualTo(first.replace("Veterinarians", "Vets"));
+        assertThat(this.cache.containsKey("vets:en:1")).isTrue();
+    }
+
+    @Test
+    public void shouldRenderAgainWhenTheKeyChanges() {
+        SpringTemplateEngine engine = engine(true);
+        engine.process("vets", this.context);
+
+        this.context.setVariable("version", 2);
+        this.context.setVariable("vets", Collections.singletonList("Linda Douglas"));
+
+        assertThat(engine.process("vets", this.context)).contains("Linda Douglas").doesNotContain("James Carter");
+    }
+
+    @Test
+    public void shouldNotEvaluateExpressionsInCachedHtml() {
+        SpringTemplateEngine engine = engine(true);
+        this.context.setVariable("vets", Collections.singletonList("[[${title}]]"));
+        engine.process("vets", this.context);
+
+        assertThat(engine.process("vets", this.context)).contains("<td>[[${title}]]</td>");
+    }
+
+    @Test
+    public void shouldRenderEveryTimeWhenDisabled() {
+        SpringTemplateEngine engine = engine(false);
+        engine.process("vets", this.context);
+
+        this.context.setVariable("vets", Collections.singletonList("Linda Douglas"));
+
+        assertThat(engine.process("vets", this.context)).contains("Linda Douglas").doesNotContain("pc:cache");
+        assertThat(this.cache.iterator().hasNext()).isFalse();
+    }
+
+    private SpringTemplateEngine engine(boolean enabled) {
+        SpringTemplateEngine engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(new StringTemplateResolver() {
+
+            @Override
+            protected ITemplateResource computeTemplateResource(IEngineConfiguration configuration,
+                                                                String ownerTemplate, String template,
+                                                                Map<String, Object> templateResolutionAttributes) {
+                return new StringTemplateResource(FragmentCacheDialectTests.this.templates.get(template));
+            }
+
+        });
+        engine.addDialect(new FragmentCacheDialect(this.cache, enabled));
+        return engine;
+    }
+
+}
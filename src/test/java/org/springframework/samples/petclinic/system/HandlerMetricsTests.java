@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test class for {@link HandlerMetricsInterceptor} and {@link LatencyDashboardController}
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class HandlerMetricsTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Test
+    public void shouldTimeEachPhaseOfAHandler() throws Exception {
+        mockMvc.perform(get("/owners/{ownerId}/pets/new", 1)).andExpect(status().isOk());
+
+        for (String phase : new String[]{"total", "model", "handler", "repository", "render"}) {
+            assertThat(registry.get(HandlerMetricsInterceptor.METRIC_NAME).tag("controller", "PetController")
+                .tag("method", "initCreationForm").tag("phase", phase).timer().count()).as(phase).isGreaterThan(0);
+        }
+        assertThat(registry.get(HandlerMetricsInterceptor.MODEL_ATTRIBUTE_METRIC_NAME)
+            .tag("controller", "PetController").tag("method", "findOwner").timer().count()).isGreaterThan(0);
+        assertThat(registry.get(HandlerMetricsInterceptor.MODEL_ATTRIBUTE_METRIC_NAME)
+            .tag("controller", "PetController").tag("method", "populatePetTypes").timer().count()).isGreaterThan(0);
+
+        mockMvc.perform(get("/latency"))
+            .andExpect(status().isOk())
+            .andExpect(content().string(containsString("PetController.initCreationForm")))
+            .andExpect(content().string(containsString("PetController.findOwner")));
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.util.StreamUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assume.assumeTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test class for {@link StaticResourceConfiguration}
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+public class StaticResourceTests {
+
+    private static final Pattern FAVICON = Pattern.compile("/resources/images/favicon-[0-9a-f]{32}\\.png");
+
+    private static final Pattern FONT = Pattern.compile("url\\('([^')?#]*/fonts/[^')?#]+)");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    public void shouldLinkFingerprintedResourcesCachedForever() throws Exception {
+        String page = mockMvc.perform(get("/")).andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+        Matcher favicon = FAVICON.matcher(page);
+        assertThat(favicon.find()).as("fingerprinted favicon link").isTrue();
+
+        mockMvc.perform(get(favicon.group()))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, StaticResourceConfiguration.IMMUTABLE));
+    }
+
+    @Test
+    public void shouldKeepTheConfiguredPolicyForPlainUrls() throws Exception {
+        mockMvc.perform(get("/resources/images/favicon.png"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=43200"));
+    }
+
+    @Test
+    public void shouldNotServeAWrongFingerprint() throws Exception {
+        mockMvc.perform(get("/resources/images/favicon-0123456789abcdef0123456789abcdef.png"))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void shouldServeThePrecompressedVariant() throws Exception {
+        assumeTrue(new ClassPathResource("static/resources/fonts/montserrat-webfont.svg.gz").exists());
+
+        mockMvc.perform(get("/resources/fonts/montserrat-webfont.svg").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+            .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT_ENCODING)));
+    }
+
+    @Test
+    public void shouldServeCompressedStylesheetsWithFingerprintedLinks() throws Exception {
+        assumeTrue(new ClassPathResource("static/resources/css/petclinic.css").exists());
+
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + this.port
+            + "/resources/css/petclinic.css").openConnection();
+        connection.setRequestProperty(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        assertThat(connection.getHeaderField(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        String css;
+        try (InputStream in = new GZIPInputStream(connection.getInputStream())) {
+            css = StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+        }
+
+        Matcher font = FONT.matcher(css);
+        int fonts = 0;
+        while (font.find()) {
+            assertThat(StaticResourceConfiguration.isFingerprinted(font.group(1))).as(font.group()).isTrue();
+            fonts++;
+        }
+        assertThat(fonts).isGreaterThan(0);
+    }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2012-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.petclinic.system;
+
+import java.util.concurrent.ExecutorService;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Test class for {@link VirtualThreadConfiguration}
+ */
+public class VirtualThreadConfigurationTests {
+
+    @Test
+    public void shouldRunTasksOnVirtualThreads() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21);
+        ExecutorService executor = VirtualThreadConfiguration.newVirtualThreadPerTaskExecutor("test-");
+        try {
+            assertThat(executor.submit(() -> Thread.currentThread().toString()).get())
+                .startsWith("VirtualThread").contains("test-0");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldRefuseToStartBeforeJava21() {
+        assumeTrue(Runtime.version().feature() < 21);
+        assertThatThrownBy(() -> VirtualThreadConfiguration.newVirtualThreadPerTaskExecutor("test-"))
+            .isInstanceOf(IllegalStateException.class).hasMessageContaining("Java 21");
+    }
+
+}
@@ -1,13 +1,22 @@
 package org.springframework.samples.petclinic.vet;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.xpath;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.assertj.core.util.Lists;
 import org.junit.Before;
 import org.junit.Test;
@@ -15,6 +24,9 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
@@ -24,15 +36,24 @@ import org.springframework.test.web.servlet.ResultActions;
  * Test class for the {@link VetController}
  */
 @RunWith(SpringRunner.class)
-@WebMvcTest(VetController.class)
+@WebMvcTest(value = VetController.class,
+    includeFilters = @ComponentScan.Filter(value = VetCatalog.class, type = FilterType.ASSIGNABLE_TYPE))
 public class VetControllerTests {
 
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private VetCatalog catalog;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @MockBean
     private VetRepository vets;
 
+    private Vet helen;
+
     @Before
     public void setup() {
         Vet james = new Vet();
@@ -43,6 +64,7 @@ public class VetControllerTests {
         helen.setFirstName("Helen");
         helen.setLastName("Leary");
         helen.setId(2);
+        this.helen = helen;
         Specialty radiology = new Specialty();
         radiology.setId(1);
         radiology.setName("radiology");
@@ -66,4 +88,71 @@ public class VetControllerTests {
             .andExpect(jsonPath("$.vetList[0].id").value(1));
     }
 
+    @Test
+    public void testShowResourcesVetListXml() throws Exception {
+        mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_XML))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_XML))
+            .andExpect(xpath("/vets/vetList[2]/specialties/name").string("radiology"));
+    }
+
+    @Test
+    public void testSnapshotIsReusedUntilVetsChange() throws Exception {
+        VetCatalog.invalidate();
+        mockMvc.perform(get("/vets.html"));
+        mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON));
+        verify(this.vets, times(1)).findAll();
+
+        VetCatalog.invalidate();
+        mockMvc.perform(get("/vets.html"))
+            .andExpect(model().attribute("vets", hasProperty("vetList", hasSize(2))));
+        verify(this.vets, times(2)).findAll();
+    }
+
+    @Test
+    public void testNotModifiedUntilVetsChange() throws Exception {
+        VetCatalog.invalidate();
+        String html = mockMvc.perform(get("/vets.html"))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String json = mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON))
+            .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(html).isNotNull().isNotEqualTo(json);
+
+        mockMvc.perform(get("/vets.html").header(HttpHeaders.IF_NONE_MATCH, html))
+            .andExpect(status().isNotModified());
+        mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON).header(HttpHeaders.IF_NONE_MATCH, json))
+            .andExpect(status().isNotModified());
+        mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_XML).header(HttpHeaders.IF_NONE_MATCH, json))
+            .andExpect(status().isOk());
+
+        VetCatalog.invalidate();
+        mockMvc.perform(get("/vets.html").header(HttpHeaders.IF_NONE_MATCH, html))
+            .andExpect(status().isNotModified());
+
+        this.helen.setLastName("Carter");
+        VetCatalog.invalidate();
+        mockMvc.perform(get("/vets.html").header(HttpHeaders.IF_NONE_MATCH, html))
+            .andExpect(status().isOk())
+            .andExpect(view().name("vets/vetList"));
+    }
+
+    @Test
+    public void testTagsDoNotDependOnTheVersionCounter() throws Exception {
+        VetCatalog.invalidate();
+        String json = mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // a restarted instance sees other vets at the same version
+        this.helen.setLastName("Carter");
+        VetCatalog restarted = new VetCatalog(this.vets, this.objectMapper);
+        assertThat(restarted.current().getVersion()).isEqualTo(this.catalog.current().getVersion());
+        assertThat(restarted.current().getDigest()).isNotEqualTo(this.catalog.current().getDigest());
+
+        VetCatalog.invalidate();
+        mockMvc.perform(get("/vets").accept(MediaType.APPLICATION_JSON).header(HttpHeaders.IF_NONE_MATCH, json))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, not(json)));
+    }
+
 }
@@ -15,6 +15,8 @@
  */
 package org.springframework.samples.petclinic.vet;
 
+import java.util.List;
+
 import org.junit.Test;
 
 import org.springframework.util.SerializationUtils;
@@ -40,4 +42,25 @@ public class VetTests {
         assertThat(other.getId()).isEqualTo(vet.getId());
     }
 
+    @Test
+    public void testSpecialtiesAreSortedAndReusedUntilChanged() {
+        Vet vet = new Vet();
+        vet.addSpecialty(specialty("surgery"));
+        vet.addSpecialty(specialty("Dentistry"));
+        List<Specialty> specialties = vet.getSpecialties();
+        assertThat(specialties).extracting(Specialty::getName).containsExactly("Dentistry", "surgery");
+        assertThat(vet.getSpecialties()).isSameAs(specialties);
+
+        vet.addSpecialty(specialty("radiology"));
+        assertThat(vet.getSpecialties()).extracting(Specialty::getName)
+            .containsExactly("Dentistry", "radiology", "surgery");
+        assertThat(specialties).hasSize(2);
+    }
+
+    private Specialty specialty(String name) {
+        Specialty specialty = new Specialty();
+        specialty.setName(name);
+        return specialty;
+    }
+
 }